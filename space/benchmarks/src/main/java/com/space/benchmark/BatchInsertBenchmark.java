@@ -0,0 +1,79 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.service.ShipBatchResult;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-ship cost of POST /rest/ships one by one against POST /rest/ships/batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int SHIPS = 1000;
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipService shipService;
+    private JdbcTemplate jdbcTemplate;
+    private List<Ship> ships;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(0);
+        shipService = context.getBean("shipServiceImpl", ShipService.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    @Setup(Level.Invocation)
+    public void newShips() {
+        ships = Fleet.ships(SHIPS, System.nanoTime());
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("delete from ship");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHIPS)
+    public void singleInserts() throws Exception {
+        for (Ship ship : ships) {
+            shipService.addNewShip(ship);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHIPS)
+    public List<ShipBatchResult> batchInsert() {
+        return shipService.addNewShips(ships);
+    }
+}
@@ -0,0 +1,105 @@
+package com.space.benchmark;
+
+import com.space.config.MetricsConfig;
+import com.space.config.StorageEngine;
+import com.space.service.ShipQueryProfiler;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application context of the benchmarks: the real services and repositories over an
+ * in-memory H2 database in MySQL mode, migrated with the application's Flyway scripts.
+ * With the bench.db.url system property set, the database at that URL instead.
+ */
+@Configuration
+@EnableTransactionManagement
+@ComponentScan({"com.space.service", "com.space.repository"})
+@EnableJpaRepositories(basePackages = "com.space.repository")
+@Import(MetricsConfig.class)
+@PropertySource("classpath:benchmark.properties")
+public class BenchmarkConfig {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Autowired
+    private Environment env;
+
+    @Bean
+    @DependsOn("flyway")
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+        LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
+        em.setDataSource(dataSource());
+        em.setPackagesToScan("com.space.model");
+
+        JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+        em.setJpaVendorAdapter(vendorAdapter);
+        em.setJpaProperties(additionalProperties());
+
+        return em;
+    }
+
+    @Bean
+    public DataSource dataSource() {
+        String url = env.getProperty("bench.db.url");
+        if (url != null) {
+            HikariConfig config = new HikariConfig();
+            config.setDriverClassName(StorageEngine.of(url).getDriver());
+            config.setJdbcUrl(url);
+            config.setUsername(env.getProperty("bench.db.username", "root"));
+            config.setPassword(env.getProperty("bench.db.password", ""));
+            return new HikariDataSource(config);
+        }
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bench" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource())
+                .locations("classpath:db/migration")
+                .load();
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager();
+        transactionManager.setEntityManagerFactory(emf);
+
+        return transactionManager;
+    }
+
+    private Properties additionalProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.hbm2ddl.auto", "none");
+        properties.setProperty("hibernate.dialect",
+                StorageEngine.of(env.getProperty("bench.db.url", "jdbc:h2:")).getDialect());
+        ShipQueryProfiler.register(properties);
+
+        return properties;
+    }
+}
@@ -0,0 +1,84 @@
+package com.space.benchmark;
+
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipColumnStore;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A filtered, sorted page and its count from the database and from {@link ShipColumnStore}
+ * filled with the same fleet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnStoreBenchmark {
+
+    private static final ShipFilter FILTER = new ShipFilter("er", null, ShipType.MILITARY,
+            null, null, false, 0.3, null, null, null, null, null);
+    private static final Pageable PAGE = PageRequest.of(1, 20, Sort.by("speed"));
+
+    @Param({"10000"})
+    private int ships;
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipService shipService;
+    private ShipColumnStore columnStore;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(ships);
+        shipService = context.getBean("shipServiceImpl", ShipService.class);
+        columnStore = new ShipColumnStore();
+        context.getBean(ShipRepository.class).findAll().forEach(columnStore::put);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ShipView> databasePage() {
+        return shipService.getShips(FILTER, PAGE);
+    }
+
+    @Benchmark
+    public List<ShipView> columnsPage() {
+        return columnStore.findViews(FILTER, PAGE);
+    }
+
+    @Benchmark
+    public Long databaseCount() {
+        return shipService.getShipsCount(FILTER);
+    }
+
+    @Benchmark
+    public Long columnsCount() {
+        return columnStore.count(FILTER);
+    }
+}
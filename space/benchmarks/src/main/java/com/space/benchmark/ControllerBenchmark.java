@@ -0,0 +1,102 @@
+package com.space.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * End-to-end ShipController requests through the DispatcherServlet, services and an
+ * embedded database of {@code ships} rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"10000"})
+    private int ships;
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(ships);
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String listFirstPage() throws Exception {
+        return perform("/rest/ships");
+    }
+
+    @Benchmark
+    public String listFilteredBySpeed() throws Exception {
+        return perform("/rest/ships?isUsed=false&minSpeed=0.3&maxSpeed=0.6&order=SPEED&pageSize=20");
+    }
+
+    @Benchmark
+    public String listDeepPage() throws Exception {
+        return perform("/rest/ships?pageNumber=400&pageSize=20");
+    }
+
+    @Benchmark
+    public String listAndCountFilteredBySpeed() throws Exception {
+        return perform("/rest/ships?isUsed=false&minSpeed=0.3&maxSpeed=0.6&order=SPEED&pageSize=20")
+                + perform("/rest/ships/count?isUsed=false&minSpeed=0.3&maxSpeed=0.6");
+    }
+
+    @Benchmark
+    public String pageFilteredBySpeed() throws Exception {
+        return perform("/rest/ships/page?isUsed=false&minSpeed=0.3&maxSpeed=0.6&order=SPEED&pageSize=20");
+    }
+
+    @Benchmark
+    public String count() throws Exception {
+        return perform("/rest/ships/count?shipType=MERCHANT&isUsed=true");
+    }
+
+    @Benchmark
+    public String countByName() throws Exception {
+        return perform("/rest/ships/count?name=ion");
+    }
+
+    @Benchmark
+    public String getById() throws Exception {
+        return perform("/rest/ships/" + (1 + ships / 2));
+    }
+
+    private String perform(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url)).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
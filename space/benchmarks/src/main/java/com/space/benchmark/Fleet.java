@@ -0,0 +1,66 @@
+package com.space.benchmark;
+
+import com.space.config.WebConfig;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipService;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic ship fixtures and a started application to run them against.
+ */
+public final class Fleet {
+
+    private static final String[] NAMES = {"Orion", "Daedalus", "Eagle", "Mongoose", "Excalibur", "Explorer",
+            "Icarus", "Hermes", "Odyssey", "Orbit Jet", "Aries", "Hunter", "Serenity", "Scorpio", "Apollo"};
+    private static final String[] PLANETS = {"Mars", "Jupiter", "Earth", "Neptune", "Mercury", "Saturn", "Venus",
+            "Uranus", "Pluto"};
+
+    private Fleet() {
+    }
+
+    public static List<Ship> ships(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ship> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Ship ship = new Ship();
+            ship.setName(NAMES[random.nextInt(NAMES.length)] + " " + i);
+            ship.setPlanet(PLANETS[random.nextInt(PLANETS.length)]);
+            ship.setShipType(ShipType.values()[random.nextInt(ShipType.values().length)]);
+            ship.setProdDate(new GregorianCalendar(2801 + random.nextInt(218), Calendar.JANUARY, 1).getTime());
+            ship.setUsed(random.nextBoolean());
+            ship.setSpeed(Math.round((0.01 + random.nextDouble() * 0.98) * 100) / 100.0);
+            ship.setCrewSize(1 + random.nextInt(9999));
+            ships.add(ship);
+        }
+        return ships;
+    }
+
+    public static AnnotationConfigWebApplicationContext start(int ships) {
+        return start(ships, "shipServiceImpl");
+    }
+
+    /**
+     * The application with ships 1..{@code ships} added through the named {@link ShipService} bean.
+     */
+    public static AnnotationConfigWebApplicationContext start(int ships, String service) {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(BenchmarkConfig.class, WebConfig.class);
+        context.refresh();
+
+        ShipService shipService = context.getBean(service, ShipService.class);
+        List<Ship> fleet = ships(ships, 42);
+        for (int from = 0; from < fleet.size(); from += 10000) {
+            shipService.addNewShips(fleet.subList(from, Math.min(from + 10000, fleet.size())));
+        }
+        return context;
+    }
+}
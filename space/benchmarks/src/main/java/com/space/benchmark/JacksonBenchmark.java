@@ -0,0 +1,55 @@
+package com.space.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.space.config.WebConfig;
+import com.space.model.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of ship lists through the field-visibility ObjectMapper of WebConfig.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    @Param({"3", "100", "1000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<Ship> ships;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new WebConfig().objectMapper();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Ship.class));
+        ships = Fleet.ships(size, 11);
+        long id = 1;
+        for (Ship ship : ships) {
+            ship.setId(id++);
+            ship.setRating(1.0);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeShips() throws Exception {
+        return writer.writeValueAsBytes(ships);
+    }
+}
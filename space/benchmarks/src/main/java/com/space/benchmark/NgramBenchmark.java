@@ -0,0 +1,74 @@
+package com.space.benchmark;
+
+import com.space.repository.ShipRepository;
+import com.space.service.ShipTextSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name filters counted through the repository, once as LIKE '%text%' and once through the
+ * trigram index, plus the index lookup alone. Texts matching more than 1000 ships fall back
+ * to LIKE in the trigram strategy as well, as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class NgramBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int ships;
+
+    @Param({"ion", "xcalib", "9999"})
+    private String text;
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipRepository shipRepository;
+    private ShipTextSearch likeTextSearch;
+    private ShipTextSearch ngramTextSearch;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(ships);
+        shipRepository = context.getBean(ShipRepository.class);
+        likeTextSearch = context.getBean("likeTextSearch", ShipTextSearch.class);
+        ngramTextSearch = context.getBean("ngramTextSearch", ShipTextSearch.class);
+        ngramTextSearch.rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long likeQuery() {
+        return shipRepository.count(likeTextSearch.contains("name", text));
+    }
+
+    @Benchmark
+    public long ngramQuery() {
+        return shipRepository.count(ngramTextSearch.contains("name", text));
+    }
+
+    @Benchmark
+    public Set<Long> ngramLookup() {
+        return ngramTextSearch.findIds("name", text);
+    }
+}
@@ -0,0 +1,86 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.service.RatingEngine;
+import com.space.service.ShipColumnStore;
+import com.space.service.ShipFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans of a large {@link ShipColumnStore} on 1, 4 and 16 fork-join threads. A filter that
+ * keeps most ships, so the scan and the per-chunk top rows dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    private static final ShipFilter FILTER = new ShipFilter(null, null, null,
+            null, null, null, 0.05, null, null, 9000, null, null);
+    private static final ShipFilter TEXT_FILTER = new ShipFilter("er", null, ShipType.MILITARY,
+            null, null, false, null, null, null, null, null, null);
+    private static final Pageable PAGE = PageRequest.of(0, 3, Sort.by("rating"));
+
+    @Param({"1000000"})
+    private int ships;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    private ShipColumnStore columnStore;
+
+    @Setup
+    public void setup() {
+        columnStore = new ShipColumnStore(ZoneId.systemDefault(), threads, 16384);
+        RatingEngine ratingEngine = new RatingEngine();
+        long id = 1;
+        for (Ship ship : Fleet.ships(ships, 42)) {
+            ship.setId(id++);
+            ship.setRating(ratingEngine.calculateRating(ship.getProdDate().getTime(), ship.getSpeed(), ship.getUsed()));
+            columnStore.put(ship);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        columnStore.shutdown();
+    }
+
+    @Benchmark
+    public Long count() {
+        return columnStore.count(FILTER);
+    }
+
+    @Benchmark
+    public List<ShipView> topPage() {
+        return columnStore.findViews(FILTER, PAGE);
+    }
+
+    @Benchmark
+    public List<ShipView> textTopPage() {
+        return columnStore.findViews(TEXT_FILTER, PAGE);
+    }
+}
@@ -0,0 +1,84 @@
+package com.space.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.Ship;
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and serializes a page of ships as managed entities and as {@link ShipView} projections.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"10000"})
+    private int ships;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private AnnotationConfigWebApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private ShipRepository shipRepository;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(ships);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        shipRepository = context.getBean(ShipRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * The listing path before projections: entities loaded into a persistence context.
+     */
+    @Benchmark
+    public byte[] entities() throws Exception {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<Ship> page = entityManager.createQuery("select s from Ship s order by s.id", Ship.class)
+                    .setMaxResults(pageSize)
+                    .getResultList();
+            return objectMapper.writeValueAsBytes(page);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] views() throws Exception {
+        List<ShipView> page = shipRepository.findViews(null, Sort.by("id"), 0, pageSize);
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,120 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.service.RatingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Calendar-based rating rules the service used to have with {@link RatingEngine}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingBenchmark {
+
+    private static final int FLEET = 1024;
+
+    private final RatingEngine ratingEngine = new RatingEngine();
+
+    private List<Ship> ships;
+    private long[] prodDates;
+    private double[] speeds;
+    private boolean[] isUsed;
+    private double[] ratings;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ships = Fleet.ships(FLEET, 7);
+        prodDates = new long[FLEET];
+        speeds = new double[FLEET];
+        isUsed = new boolean[FLEET];
+        ratings = new double[FLEET];
+        for (int i = 0; i < FLEET; i++) {
+            Ship ship = ships.get(i);
+            prodDates[i] = ship.getProdDate().getTime();
+            speeds[i] = ship.getSpeed();
+            isUsed[i] = ship.getUsed();
+        }
+    }
+
+    @Benchmark
+    public double calendarRating() {
+        Ship ship = nextShip();
+        return calendarRating(ship.getProdDate().getTime(), ship.getSpeed(), ship.getUsed());
+    }
+
+    @Benchmark
+    public double engineRating() {
+        Ship ship = nextShip();
+        return ratingEngine.calculateRating(ship.getProdDate().getTime(), ship.getSpeed(), ship.getUsed());
+    }
+
+    @Benchmark
+    public boolean calendarValidateProdDate() {
+        return calendarValidProdDate(nextShip().getProdDate().getTime());
+    }
+
+    @Benchmark
+    public boolean engineValidateProdDate() {
+        return ratingEngine.isValidProdDate(nextShip().getProdDate().getTime());
+    }
+
+    @Benchmark
+    public void calendarRatingForFleet(Blackhole blackhole) {
+        for (int i = 0; i < FLEET; i++) {
+            blackhole.consume(calendarRating(prodDates[i], speeds[i], isUsed[i]));
+        }
+    }
+
+    @Benchmark
+    public double[] engineRatingForFleet() {
+        ratingEngine.calculateRatings(prodDates, speeds, isUsed, ratings, FLEET);
+        return ratings;
+    }
+
+    private Ship nextShip() {
+        next = (next + 1) & (FLEET - 1);
+        return ships.get(next);
+    }
+
+    private static boolean calendarValidProdDate(long prodDate) {
+        Calendar dateMinCal = Calendar.getInstance();
+        Calendar dateMaxCal = Calendar.getInstance();
+
+        dateMinCal.set(2800, Calendar.JANUARY, 1);
+        dateMaxCal.set(3019, Calendar.DECEMBER, 31);
+
+        return prodDate >= 0 && prodDate >= dateMinCal.getTimeInMillis() && prodDate <= dateMaxCal.getTimeInMillis();
+    }
+
+    private static double calendarRating(long prodDate, double speed, boolean isUsed) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(prodDate);
+
+        int year = calendar.get(Calendar.YEAR);
+        double k = isUsed ? 0.5 : 1.0;
+
+        double currentRating = ((80 * speed * k) / (3019 - year + 1));
+        currentRating = Math.round(currentRating * 100.0) / 100.0;
+        return currentRating;
+    }
+}
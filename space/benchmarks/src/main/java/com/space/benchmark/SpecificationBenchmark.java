@@ -0,0 +1,97 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipFilter;
+import com.space.service.ShipJpaService;
+import com.space.service.ShipQueryPlans;
+import com.space.service.ShipTextSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the full ShipController filter set into a Criteria predicate, without running it,
+ * against taking the cached JPQL plan for the same filter and creating its query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecificationBenchmark {
+
+    private static final ShipFilter FULL_FILTER = new ShipFilter("on", "ar", ShipType.MILITARY,
+            26192235600000L, 33103198800000L, false, 0.1, 0.9, 10, 5000, 0.5, 10.0);
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipJpaService shipService;
+    private EntityManager entityManager;
+    private ShipQueryPlans queryPlans;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(0);
+        shipService = context.getBean("shipServiceImpl", ShipJpaService.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        queryPlans = new ShipQueryPlans(context.getBean(ShipRepository.class),
+                context.getBean("likeTextSearch", ShipTextSearch.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Specification<Ship> buildSpecification() {
+        return shipService.filterShips(FULL_FILTER);
+    }
+
+    @Benchmark
+    public Predicate buildPredicate() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+        return shipService.filterShips(FULL_FILTER).toPredicate(root, query, criteriaBuilder);
+    }
+
+    @Benchmark
+    public String renderSql() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+        query.where(shipService.filterShips(FULL_FILTER).toPredicate(root, query, criteriaBuilder));
+        return entityManager.createQuery(query).unwrap(org.hibernate.query.Query.class).getQueryString();
+    }
+
+    @Benchmark
+    public String preparePlan() {
+        ShipQueryPlans.Plan plan = queryPlans.plan(FULL_FILTER, Sort.by("id"));
+        return entityManager.createQuery(plan.getJpql(), ShipView.class)
+                .unwrap(org.hibernate.query.Query.class).getQueryString();
+    }
+}
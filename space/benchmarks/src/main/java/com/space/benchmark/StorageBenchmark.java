@@ -0,0 +1,132 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service operations against each storage engine: an embedded H2 database on disk and a
+ * MySQL server at bench.mysql.url (credentials from bench.db.username/password). Without a
+ * server, run only the embedded one with {@code -p storage=h2-file}. {@code log} keeps the ships
+ * in a {@link com.space.repository.ShipLog} in a temporary directory, forced to disk every
+ * {@code bench.log.syncIntervalMs} (100 by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    private static final ShipFilter FILTER = new ShipFilter(null, null, ShipType.MILITARY,
+            null, null, false, 0.3, null, null, null, null, null);
+    private static final Pageable PAGE = PageRequest.of(1, 20, Sort.by("speed"));
+
+    @Param({"10000"})
+    private int ships;
+
+    @Param({"h2-file", "mysql", "log"})
+    private String storage;
+
+    private Path directory;
+    private AnnotationConfigWebApplicationContext context;
+    private ShipService shipService;
+    private long added;
+
+    @Setup
+    public void setup() throws IOException {
+        String url;
+        if ("mysql".equals(storage)) {
+            url = System.getProperty("bench.mysql.url",
+                    "jdbc:mysql://localhost:3306/cosmoport_bench?serverTimezone=UTC&createDatabaseIfNotExist=true");
+        } else {
+            directory = Files.createTempDirectory("cosmoport-bench");
+            url = "jdbc:h2:file:" + directory.resolve("ships") + ";MODE=MySQL";
+        }
+        Flyway.configure()
+                .dataSource(url, System.getProperty("bench.db.username", "root"),
+                        System.getProperty("bench.db.password", ""))
+                .load()
+                .clean();
+
+        System.setProperty("bench.db.url", url);
+        String service = "shipServiceImpl";
+        if ("log".equals(storage)) {
+            System.setProperty("ships.storage", "log");
+            System.setProperty("ships.log.dir", directory.resolve("log").toString());
+            System.setProperty("ships.log.syncIntervalMs", System.getProperty("bench.log.syncIntervalMs", "100"));
+            service = "shipLogService";
+        }
+        context = Fleet.start(ships, service);
+        shipService = context.getBean(service, ShipService.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        System.clearProperty("bench.db.url");
+        System.clearProperty("ships.storage");
+        System.clearProperty("ships.log.dir");
+        System.clearProperty("ships.log.syncIntervalMs");
+        if (directory != null) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public Ship findById() {
+        return shipService.findById(1L + ThreadLocalRandom.current().nextInt(ships));
+    }
+
+    @Benchmark
+    public List<ShipView> filteredPage() {
+        return shipService.getShips(FILTER, PAGE);
+    }
+
+    @Benchmark
+    public Long filteredCount() {
+        return shipService.getShipsCount(FILTER);
+    }
+
+    @Benchmark
+    public Ship addShip() throws Exception {
+        Ship ship = Fleet.ships(1, ++added).get(0);
+        shipService.addNewShip(ship);
+        return ship;
+    }
+
+    @Benchmark
+    public Ship updateShip() {
+        Ship changes = new Ship();
+        changes.setSpeed((1 + ThreadLocalRandom.current().nextInt(99)) / 100.0);
+        return shipService.updateShip(1L + ThreadLocalRandom.current().nextInt(ships), changes, null);
+    }
+}
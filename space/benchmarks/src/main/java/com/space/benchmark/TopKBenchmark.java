@@ -0,0 +1,69 @@
+package com.space.benchmark;
+
+import com.space.controller.ShipOrder;
+import com.space.model.ShipView;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default 3-ship first page for every {@link ShipOrder}, read from the (field, id) index in
+ * order, against sorting every matching ship and keeping the first three.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+    private static final ShipFilter FILTER = new ShipFilter("e", null, null,
+            null, null, null, null, null, null, null, null, null);
+
+    @Param({"10000"})
+    private int ships;
+
+    @Param({"ID", "SPEED", "DATE", "RATING"})
+    private ShipOrder order;
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipService shipService;
+
+    @Setup
+    public void setup() {
+        context = Fleet.start(ships);
+        shipService = context.getBean("shipServiceImpl", ShipService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ShipView> topK() {
+        return shipService.getShips(FILTER, PageRequest.of(0, 3, order.getSort()));
+    }
+
+    @Benchmark
+    public List<ShipView> sortAll() {
+        return shipService.getShips(FILTER, PageRequest.of(0, ships, order.getSort())).subList(0, 3);
+    }
+}
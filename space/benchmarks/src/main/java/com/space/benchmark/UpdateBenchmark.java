@@ -0,0 +1,126 @@
+package com.space.benchmark;
+
+import com.space.model.Ship;
+import com.space.repository.ShipRepository;
+import com.space.service.RatingEngine;
+import com.space.service.ShipCache;
+import com.space.service.ShipQueryCache;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent partial updates of a few hot ships: the read-modify-write through the entity that
+ * updateShip used to do, against the single conditional UPDATE it does now. Successful updates
+ * are counted apart from version conflicts and lock timeouts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class UpdateBenchmark {
+
+    @Param({"1000"})
+    private int ships;
+
+    @Param({"1", "100"})
+    private int hotShips;
+
+    @Param({"false", "true"})
+    private String cache;
+
+    private AnnotationConfigWebApplicationContext context;
+    private ShipService shipService;
+    private ShipRepository shipRepository;
+    private RatingEngine ratingEngine;
+    private ShipCache shipCache;
+    private ShipQueryCache shipQueryCache;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long updated;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            updated = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        System.setProperty("ships.cache.enabled", cache);
+        context = Fleet.start(ships);
+        shipService = context.getBean("shipServiceImpl", ShipService.class);
+        shipRepository = context.getBean(ShipRepository.class);
+        ratingEngine = context.getBean(RatingEngine.class);
+        shipCache = context.getBean(ShipCache.class);
+        shipQueryCache = context.getBean(ShipQueryCache.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        System.clearProperty("ships.cache.enabled");
+    }
+
+    @Benchmark
+    public void readModifyWrite(Outcomes outcomes) {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotShips);
+        try {
+            if (!shipService.isExists(id)) {
+                return;
+            }
+            Ship ship = shipRepository.findById(id).orElseGet(Ship::new);
+            ship.setSpeed(speed());
+            ship.setRating(ratingEngine.calculateRating(ship.getProdDate().getTime(), ship.getSpeed(), ship.getUsed()));
+            shipRepository.save(ship);
+            shipCache.invalidate(id);
+            shipQueryCache.invalidate();
+            outcomes.updated++;
+        } catch (ConcurrencyFailureException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    @Benchmark
+    public void conditionalUpdate(Outcomes outcomes) {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotShips);
+        Ship changes = new Ship();
+        changes.setSpeed(speed());
+        try {
+            shipService.updateShip(id, changes, null);
+            outcomes.updated++;
+        } catch (ResponseStatusException | ConcurrencyFailureException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    private static double speed() {
+        return (1 + ThreadLocalRandom.current().nextInt(99)) / 100.0;
+    }
+}
@@ -1,11 +1,21 @@
 package com.space.config;
 
+import com.space.repository.ReplicaRoutingDataSource;
+import com.space.service.ShipQueryProfiler;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -15,15 +25,27 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 @Configuration
 @EnableTransactionManagement
-@ComponentScan("com.space.service")
+@ComponentScan({"com.space.service", "com.space.repository"})
 @EnableJpaRepositories(basePackages = "com.space.repository")
+@Import(MetricsConfig.class)
+@PropertySource("classpath:application.properties")
+@PropertySource(value = "file:${cosmoport.config:cosmoport.properties}", ignoreResourceNotFound = true)
 public class AppConfig {
 
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
+    @DependsOn("flyway")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource());
@@ -36,14 +58,73 @@ public class AppConfig {
         return em;
     }
 
-    @Bean
+    /**
+     * The primary pool, or with db.replicas.urls set, a {@link ReplicaRoutingDataSource} over the
+     * primary and one pool per replica.
+     */
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC");
-        dataSource.setUsername("root");
-        dataSource.setPassword("1ivjwBvp%");
-        return dataSource;
+        HikariDataSource primary = pool("cosmoport", env.getRequiredProperty("db.url"),
+                env.getRequiredProperty("db.username"), env.getProperty("db.password", ""));
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : env.getProperty("db.replicas.urls", "").split(",")) {
+            if (!url.trim().isEmpty()) {
+                replicas.add(pool("cosmoport-replica-" + (replicas.size() + 1), url.trim(),
+                        env.getProperty("db.replicas.username", env.getRequiredProperty("db.username")),
+                        env.getProperty("db.replicas.password", env.getProperty("db.password", ""))));
+            }
+        }
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, env.getProperty("db.replicas.selection",
+                ReplicaRoutingDataSource.Selection.class, ReplicaRoutingDataSource.Selection.ROUND_ROBIN));
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password) {
+        StorageEngine engine = StorageEngine.of(url);
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDriverClassName(env.getProperty("db.driver", engine.getDriver()));
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+
+        config.setMaximumPoolSize(env.getProperty("db.pool.maxSize", Integer.class, 20));
+        config.setMinimumIdle(env.getProperty("db.pool.minIdle", Integer.class, 5));
+        config.setConnectionTimeout(env.getProperty("db.pool.connectionTimeoutMs", Long.class, 3000L));
+        config.setIdleTimeout(env.getProperty("db.pool.idleTimeoutMs", Long.class, 600000L));
+        config.setMaxLifetime(env.getProperty("db.pool.maxLifetimeMs", Long.class, 1800000L));
+        config.setLeakDetectionThreshold(env.getProperty("db.pool.leakDetectionThresholdMs", Long.class, 0L));
+
+        // H2 rejects connection settings it does not know
+        if (engine == StorageEngine.MYSQL) {
+            config.addDataSourceProperty("cachePrepStmts", env.getProperty("db.cachePrepStmts", "true"));
+            config.addDataSourceProperty("prepStmtCacheSize", env.getProperty("db.prepStmtCacheSize", "250"));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", env.getProperty("db.prepStmtCacheSqlLimit", "2048"));
+            config.addDataSourceProperty("useServerPrepStmts", env.getProperty("db.useServerPrepStmts", "true"));
+            config.addDataSourceProperty("rewriteBatchedStatements", env.getProperty("db.rewriteBatchedStatements", "true"));
+            config.addDataSourceProperty("useCursorFetch", env.getProperty("db.useCursorFetch", "true"));
+        }
+
+        // active/idle/pending gauges over JMX, acquire-time histograms through the meter registry
+        config.setRegisterMbeans(true);
+        config.setMetricRegistry(meterRegistry);
+
+        return new HikariDataSource(config);
+    }
+
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource())
+                .locations("classpath:db/migration")
+                // databases created by init.sql already have the version 1 table
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
     }
 
     @Bean
@@ -61,7 +142,9 @@ public class AppConfig {
 
     private Properties additionalProperties() {
         Properties properties = new Properties();
-        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        properties.setProperty("hibernate.dialect",
+                StorageEngine.of(env.getRequiredProperty("db.url")).getDialect());
+        ShipQueryProfiler.register(properties);
 
         return properties;
     }
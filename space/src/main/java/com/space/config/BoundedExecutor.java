@@ -0,0 +1,82 @@
+package com.space.config;
+
+import com.space.repository.ReplicaRoutingDataSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on a delegate executor but never holds more than {@code maxTasks} of them,
+ * running or queued. Further tasks are rejected right away instead of piling up behind a
+ * slow database.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxTasks;
+
+    public BoundedExecutor(ExecutorService delegate, int maxTasks) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxTasks);
+        this.maxTasks = maxTasks;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("More than " + maxTasks + " tasks are pending");
+        }
+        // a request pinned to the primary stays pinned on the worker thread
+        Runnable pinnedTask = ReplicaRoutingDataSource.propagatePin(task);
+        try {
+            delegate.execute(() -> {
+                try {
+                    pinnedTask.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the query like {@link java.util.concurrent.CompletableFuture#supplyAsync}, except that
+     * cancelling the result interrupts the query, or drops it if it has not started yet.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                result.complete(query.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, null);
+        execute(task);
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public int getPendingTasks() {
+        return maxTasks - permits.availablePermits();
+    }
+
+    public void shutdown() throws InterruptedException {
+        delegate.shutdown();
+        delegate.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
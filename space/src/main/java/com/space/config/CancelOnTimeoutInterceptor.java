@@ -0,0 +1,57 @@
+package com.space.config;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cancels the queries of an asynchronous request when the request times out. Spring answers
+ * the timeout on its own but leaves the future returned by the handler running, holding an
+ * executor slot and a connection for a response nobody will get.
+ *
+ * <p>The timeout is answered here, before the futures are cancelled: the handler's future backs
+ * the {@link DeferredResult}, and cancelling it first would complete the request with a
+ * {@link java.util.concurrent.CancellationException} (a 500) instead of the 503 for a timeout.
+ */
+public class CancelOnTimeoutInterceptor implements DeferredResultProcessingInterceptor {
+
+    private static final String FUTURES = CancelOnTimeoutInterceptor.class.getName() + ".futures";
+
+    /**
+     * Registers the future with the current request, to be cancelled if the request times out.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> cancelOnTimeout(CompletableFuture<T> future) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return future;
+        }
+        List<CompletableFuture<?>> futures =
+                (List<CompletableFuture<?>>) attributes.getAttribute(FUTURES, RequestAttributes.SCOPE_REQUEST);
+        if (futures == null) {
+            futures = new ArrayList<>();
+            attributes.setAttribute(FUTURES, futures, RequestAttributes.SCOPE_REQUEST);
+        }
+        futures.add(future);
+        return future;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> boolean handleTimeout(NativeWebRequest request, DeferredResult<T> deferredResult) {
+        List<CompletableFuture<?>> futures =
+                (List<CompletableFuture<?>>) request.getAttribute(FUTURES, RequestAttributes.SCOPE_REQUEST);
+        deferredResult.setErrorResult(new AsyncRequestTimeoutException());
+        if (futures != null) {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.space.config;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public MeterRegistry meterRegistry() {
+        CompositeMeterRegistry registry = new CompositeMeterRegistry();
+        registry.config()
+                .commonTags("application", "cosmoport")
+                .meterFilter(histogramsFor("hikaricp.connections"))
+                .meterFilter(histogramsFor("http.server.requests"))
+                .meterFilter(histogramsFor("ships.phase"));
+        registry.add(new JmxMeterRegistry(JmxConfig.DEFAULT, Clock.SYSTEM));
+        registry.add(prometheusMeterRegistry());
+        return registry;
+    }
+
+    /**
+     * Backs the scrape endpoint GET /rest/metrics.
+     */
+    @Bean
+    public PrometheusMeterRegistry prometheusMeterRegistry() {
+        return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
+
+    @Bean
+    public static PhaseMetricsPostProcessor phaseMetricsPostProcessor(Environment env) {
+        return new PhaseMetricsPostProcessor(env.getProperty("ships.metrics.enabled", Boolean.class, true));
+    }
+
+    private static MeterFilter histogramsFor(String prefix) {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!id.getName().startsWith(prefix)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentiles(0.5, 0.95, 0.99)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
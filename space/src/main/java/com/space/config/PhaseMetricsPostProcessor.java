@@ -0,0 +1,89 @@
+package com.space.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the service and repository phases of requests: every call into the ship service or
+ * a ship repository is recorded in {@code ships.phase}, tagged with the phase and the method.
+ * Service time includes the repository calls it makes.
+ */
+public class PhaseMetricsPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private static final Map<String, String> PHASES = new HashMap<>();
+
+    static {
+        PHASES.put("shipServiceImpl", "service");
+        PHASES.put("shipLogService", "service");
+        PHASES.put("shipRepository", "repository");
+        PHASES.put("shipJdbcRepository", "repository");
+    }
+
+    private final boolean enabled;
+
+    private BeanFactory beanFactory;
+
+    public PhaseMetricsPostProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        String phase = PHASES.get(beanName);
+        if (!enabled || phase == null) {
+            return bean;
+        }
+
+        MethodInterceptor timing = new PhaseTiming(beanFactory.getBean("meterRegistry", MeterRegistry.class), phase);
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, timing);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(timing);
+        return proxyFactory.getProxy();
+    }
+
+    private static final class PhaseTiming implements MethodInterceptor {
+        private final MeterRegistry meterRegistry;
+        private final String phase;
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        private PhaseTiming(MeterRegistry meterRegistry, String phase) {
+            this.meterRegistry = meterRegistry;
+            this.phase = phase;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Timer timer = timers.computeIfAbsent(invocation.getMethod(), method -> Timer.builder("ships.phase")
+                    .tag("phase", phase)
+                    .tag("operation", method.getName())
+                    .register(meterRegistry));
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.space.config;
+
+import com.space.repository.ReplicaRoutingDataSource;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Pins the requests of a client that wrote within the last {@code windowMs} to the primary, so
+ * it sees its own writes however far the replicas lag. A write sets a cookie holding the end of
+ * the window; requests carrying an unexpired one read from the primary.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String COOKIE = "ships-written-until";
+
+    private final long windowMs;
+
+    public ReadYourWritesInterceptor(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.currentTimeMillis();
+        boolean write = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+
+        if (write && request.getDispatcherType() == DispatcherType.REQUEST) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + windowMs));
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            cookie.setMaxAge((int) ((windowMs + 999) / 1000));
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        // the reads of a write, such as the version check of an update, must not see a stale row either
+        ReplicaRoutingDataSource.setPinnedToPrimary(write || writtenUntil(request) > now);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ReplicaRoutingDataSource.setPinnedToPrimary(false);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ReplicaRoutingDataSource.setPinnedToPrimary(false);
+    }
+
+    private static long writtenUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.space.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times every request from the first dispatch to completion, so asynchronous endpoints are
+ * measured including the wait for the query executor, and counts responses by status.
+ */
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String SAMPLE_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".sample";
+
+    private static final Map<String, String> ENDPOINTS = new HashMap<>();
+
+    static {
+        ENDPOINTS.put("showAllShips", "list");
+        ENDPOINTS.put("showShipsPage", "page");
+        ENDPOINTS.put("showShipsCount", "count");
+        ENDPOINTS.put("getShipById", "get");
+        ENDPOINTS.put("createNewShip", "create");
+        ENDPOINTS.put("updateShip", "update");
+        ENDPOINTS.put("deleteShip", "delete");
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an asynchronous request passes here again on its second dispatch
+        if (request.getAttribute(SAMPLE_ATTRIBUTE) == null) {
+            request.setAttribute(SAMPLE_ATTRIBUTE, Timer.start(meterRegistry));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Timer.Sample sample = (Timer.Sample) request.getAttribute(SAMPLE_ATTRIBUTE);
+        if (sample == null) {
+            return;
+        }
+
+        String status = Integer.toString(ex != null && response.getStatus() < 400 ? 500 : response.getStatus());
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        sample.stop(Timer.builder("http.server.requests")
+                .tag("endpoint", endpoint(handler))
+                .tag("method", request.getMethod())
+                .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                .tag("status", status)
+                .register(meterRegistry));
+        meterRegistry.counter("http.server.responses", "status", status).increment();
+    }
+
+    private static String endpoint(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return "none";
+        }
+        String name = ((HandlerMethod) handler).getMethod().getName();
+        return ENDPOINTS.getOrDefault(name, name);
+    }
+}
@@ -0,0 +1,42 @@
+package com.space.config;
+
+/**
+ * Database behind the ship repositories, told apart by the scheme of db.url.
+ * <p>
+ * The schema and every query are written for MySQL; H2 runs them in its MySQL mode, so an H2
+ * URL must carry {@code MODE=MySQL}, and {@code IGNORECASE=TRUE} so that text compares like
+ * MySQL's case-insensitive default collation. In file mode ({@code jdbc:h2:file:...}) H2 is an embedded
+ * on-disk engine and the application needs no database server.
+ */
+public enum StorageEngine {
+
+    MYSQL("jdbc:mysql:", "com.mysql.cj.jdbc.Driver", "org.hibernate.dialect.MySQL5Dialect"),
+    H2("jdbc:h2:", "org.h2.Driver", "org.hibernate.dialect.H2Dialect");
+
+    private final String urlPrefix;
+    private final String driver;
+    private final String dialect;
+
+    StorageEngine(String urlPrefix, String driver, String dialect) {
+        this.urlPrefix = urlPrefix;
+        this.driver = driver;
+        this.dialect = dialect;
+    }
+
+    public static StorageEngine of(String url) {
+        for (StorageEngine engine : values()) {
+            if (url.startsWith(engine.urlPrefix)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported database URL " + url);
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+
+    public String getDialect() {
+        return dialect;
+    }
+}
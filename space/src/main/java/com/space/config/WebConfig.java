@@ -2,26 +2,69 @@ package com.space.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 @Configuration
 @EnableWebMvc
 @ComponentScan("com.space.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    private static Logger log = getLogger(WebConfig.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.async.poolSize:16}")
+    private int asyncPoolSize;
+
+    @Value("${ships.async.queueCapacity:200}")
+    private int asyncQueueCapacity;
+
+    @Value("${ships.async.timeoutMs:10000}")
+    private long asyncTimeoutMs;
+
+    @Value("${ships.async.virtualThreads:false}")
+    private boolean asyncVirtualThreads;
+
+    @Value("${ships.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    @Value("${db.replicas.urls:}")
+    private String replicaUrls;
+
+    @Value("${db.replicas.readYourWritesMs:2000}")
+    private long readYourWritesMs;
 
     @Bean
     public ViewResolver internalResourceViewResolver() {
@@ -37,16 +80,75 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addViewController("/").setViewName("index");
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (metricsEnabled) {
+            registry.addInterceptor(new RequestMetricsInterceptor(meterRegistry));
+        }
+        if (!replicaUrls.trim().isEmpty()) {
+            registry.addInterceptor(new ReadYourWritesInterceptor(readYourWritesMs));
+        }
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
     }
 
+    @Bean
+    public ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return objectMapper;
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
-        converters.add(converter);
+        converters.add(new StringHttpMessageConverter(StandardCharsets.UTF_8));
+        converters.add(metricsEnabled
+                ? new TimedJacksonConverter(objectMapper(), Timer.builder("ships.phase")
+                        .tag("phase", "serialization")
+                        .tag("operation", "json")
+                        .register(meterRegistry))
+                : new MappingJackson2HttpMessageConverter(objectMapper()));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // requests still waiting for the database after this long get 503
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+        configurer.registerDeferredResultInterceptors(new CancelOnTimeoutInterceptor());
+    }
+
+    /**
+     * Runs the blocking repository work of the asynchronous endpoints, so container threads
+     * are released while the database works.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedExecutor shipQueryExecutor() {
+        ExecutorService delegate = virtualThreadExecutor();
+        if (delegate == null) {
+            delegate = ExecutorServiceMetrics.monitor(meterRegistry,
+                    Executors.newFixedThreadPool(asyncPoolSize, new CustomizableThreadFactory("ship-query-")),
+                    "ships.query");
+        }
+
+        // the same admission limit either way; on virtual threads the extra tasks wait for a connection instead
+        BoundedExecutor executor = new BoundedExecutor(delegate, asyncPoolSize + asyncQueueCapacity);
+        Gauge.builder("ships.query.pending", executor, BoundedExecutor::getPendingTasks).register(meterRegistry);
+        return executor;
+    }
+
+    private ExecutorService virtualThreadExecutor() {
+        if (!asyncVirtualThreads) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads are not available, using a pool of " + asyncPoolSize + " threads...");
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
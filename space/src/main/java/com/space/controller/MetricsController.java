@@ -0,0 +1,54 @@
+package com.space.controller;
+
+import com.space.service.ShipQueryProfiler;
+import com.space.service.ShipQueryShape;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * Scrape endpoint for Prometheus. The same meters are published over JMX under "metrics".
+ * Next to it, the list and count query shapes recorded by {@link ShipQueryProfiler}.
+ */
+@RestController
+@RequestMapping(value = "/rest")
+public class MetricsController {
+
+    public static final String PROMETHEUS_VALUE = "text/plain;version=0.0.4;charset=utf-8";
+
+    @Resource(name = "prometheusMeterRegistry")
+    private PrometheusMeterRegistry prometheusMeterRegistry;
+
+    @Resource(name = "shipQueryProfiler")
+    private ShipQueryProfiler shipQueryProfiler;
+
+    @GetMapping(value = "/metrics", produces = PROMETHEUS_VALUE)
+    public String scrape() {
+        return prometheusMeterRegistry.scrape();
+    }
+
+    @GetMapping(value = "/metrics/queries")
+    public ResponseEntity<List<ShipQueryShape>> showQueryShapes(
+            @RequestParam(value = "order", required = false, defaultValue = "TOTAL") ShipQueryShape.Order order,
+            @RequestParam(value = "top", required = false, defaultValue = "10") Integer top) {
+
+        if (top <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(shipQueryProfiler.top(order, top), HttpStatus.OK);
+    }
+
+    @DeleteMapping(value = "/metrics/queries")
+    public ResponseEntity<Void> resetQueryShapes() {
+        shipQueryProfiler.reset();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
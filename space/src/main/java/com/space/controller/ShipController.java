@@ -1,20 +1,42 @@
 package com.space.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.space.model.Ship;
 import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.config.BoundedExecutor;
+import com.space.config.CancelOnTimeoutInterceptor;
+import com.space.service.ShipBatchResult;
+import com.space.service.ShipFilter;
+import com.space.service.ShipPage;
+import com.space.service.ShipRerateJob;
+import com.space.service.ShipRerateStatus;
 import com.space.service.ShipService;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -26,14 +48,50 @@ public class ShipController {
 
     private static Logger log = getLogger(ShipController.class);
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     @Resource(name = "shipServiceImpl")
+    private ShipService databaseShipService;
+
+    @Resource(name = "shipLogService")
+    private ShipService logShipService;
+
+    @Value("${ships.storage:database}")
+    private String storage;
+
     private ShipService shipService;
 
+    @Resource(name = "shipRerateJob")
+    private ShipRerateJob shipRerateJob;
+
+    @Resource(name = "shipQueryExecutor")
+    private BoundedExecutor shipQueryExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void init() {
+        switch (storage) {
+            case "database":
+                shipService = databaseShipService;
+                break;
+            case "log":
+                shipService = logShipService;
+                break;
+            default:
+                throw new IllegalStateException("Unknown ships.storage: " + storage);
+        }
+    }
+
     @GetMapping(value = "/ships")
-    public ResponseEntity<List<Ship>> showAllShips(
+    public CompletableFuture<ResponseEntity<List<ShipView>>> showAllShips(
             @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
             @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
             @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "planet", required = false) String planet,
             @RequestParam(value = "shipType", required = false) ShipType shipType,
@@ -49,60 +107,179 @@ public class ShipController {
 
         log.info("Running method 'showAllShips()'...");
 
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed,
+                minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
+
+        if (cursor != null) {
+            return showShipsAfterCursor(filter, order, pageSize, cursor);
+        }
+
         log.info("Getting pageable and sort options...");
-        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
-
-        log.info("Getting list of all ships...");
-        List<Ship> shipsList = shipService.getAllShips(
-                Specification.where(shipService.filterShipsByName(name)
-                        .and(shipService.filterShipsByPlanet(planet)))
-                        .and(shipService.filterShipsByShipType(shipType))
-                        .and(shipService.filterShipsByDate(after, before))
-                        .and(shipService.filterShipsByUsage(isUsed))
-                        .and(shipService.filterShipsBySpeed(minSpeed, maxSpeed))
-                        .and(shipService.filterShipsByCrewSize(minCrewSize, maxCrewSize))
-                        .and(shipService.filterShipsByRating(minRating, maxRating)), pageable).getContent();
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, order.getSort());
+
+        return query(() -> {
+            log.info("Getting list of all ships...");
+            List<ShipView> shipsList = shipService.getShips(filter, pageable);
+
+            if (shipsList.isEmpty()) {
+                log.debug("List of ships is empty...");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            }
+
+            return new ResponseEntity<>(shipsList, HttpStatus.OK);
+        });
+    }
+
+    private CompletableFuture<ResponseEntity<List<ShipView>>> showShipsAfterCursor(ShipFilter filter,
+                                                                                   ShipOrder order, Integer pageSize,
+                                                                                   String cursor) {
+
+        log.info("Getting keyset page after cursor: '" + cursor + "'...");
+        if (pageSize <= 0) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        ShipCursor shipCursor = null;
+        if (!cursor.isEmpty()) {
+            try {
+                shipCursor = ShipCursor.decode(cursor, order);
+            } catch (IllegalArgumentException e) {
+                log.debug("Incorrect cursor for order " + order + "...");
+                return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+            }
+        }
+
+        Comparable<?> value = shipCursor == null ? null : shipCursor.getValue();
+        Long id = shipCursor == null ? null : shipCursor.getId();
+        return query(() -> shipsAfterCursor(
+                shipService.getShipsAfter(filter, order.getSort(), value, id, pageSize + 1), order, pageSize));
+    }
+
+    /**
+     * Runs the query on the query executor. If the request times out first, the query is
+     * cancelled, so it gives back its executor slot and connection.
+     */
+    private <T> CompletableFuture<T> query(Supplier<T> query) {
+        return CancelOnTimeoutInterceptor.cancelOnTimeout(shipQueryExecutor.supply(query));
+    }
+
+    private ResponseEntity<List<ShipView>> shipsAfterCursor(List<ShipView> shipsList, ShipOrder order,
+                                                            Integer pageSize) {
 
         if (shipsList.isEmpty()) {
             log.debug("List of ships is empty...");
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
 
-        return new ResponseEntity<>(shipsList, HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        if (shipsList.size() > pageSize) {
+            shipsList = shipsList.subList(0, pageSize);
+            headers.set(NEXT_CURSOR_HEADER, ShipCursor.of(order, shipsList.get(pageSize - 1)).encode());
+        }
+
+        return new ResponseEntity<>(shipsList, headers, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/ships/page")
+    public CompletableFuture<ResponseEntity<ShipPage>> showShipsPage(
+            @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+            @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "planet", required = false) String planet,
+            @RequestParam(value = "shipType", required = false) ShipType shipType,
+            @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+            @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+            @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+            @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating) {
+
+        log.info("Running method 'showShipsPage()'...");
+
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed,
+                minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, order.getSort());
+
+        // each query runs on its own executor thread and so on its own connection
+        log.info("Getting page and count of ships...");
+        CompletableFuture<List<ShipView>> items = query(() -> shipService.getShips(filter, pageable));
+        CompletableFuture<Long> total = query(() -> shipService.getShipsCount(filter));
+
+        return items.thenCombine(total, (shipsList, shipsCount) ->
+                new ResponseEntity<>(new ShipPage(shipsList, shipsCount), HttpStatus.OK));
     }
 
     @GetMapping(value = "/ships/count")
-    public ResponseEntity<Integer> showShipsCount(@RequestParam(value = "name", required = false) String name,
-                                                  @RequestParam(value = "planet", required = false) String planet,
-                                                  @RequestParam(value = "shipType", required = false) ShipType shipType,
-                                                  @RequestParam(value = "after", required = false) Long after,
-                                                  @RequestParam(value = "before", required = false) Long before,
-                                                  @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-                                                  @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-                                                  @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-                                                  @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-                                                  @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-                                                  @RequestParam(value = "minRating", required = false) Double minRating,
-                                                  @RequestParam(value = "maxRating", required = false) Double maxRating) {
+    public CompletableFuture<ResponseEntity<Long>> showShipsCount(@RequestParam(value = "name", required = false) String name,
+                                                                  @RequestParam(value = "planet", required = false) String planet,
+                                                                  @RequestParam(value = "shipType", required = false) ShipType shipType,
+                                                                  @RequestParam(value = "after", required = false) Long after,
+                                                                  @RequestParam(value = "before", required = false) Long before,
+                                                                  @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                                                                  @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                                                                  @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                                                                  @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                                                                  @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                                                                  @RequestParam(value = "minRating", required = false) Double minRating,
+                                                                  @RequestParam(value = "maxRating", required = false) Double maxRating) {
 
         log.info("Running method 'showShipsCount()'...");
 
-        log.info("Getting count for list of all ships...");
-        Integer shipsCount = shipService.getAllShips(
-                Specification.where(shipService.filterShipsByName(name)
-                        .and(shipService.filterShipsByPlanet(planet)))
-                        .and(shipService.filterShipsByShipType(shipType))
-                        .and(shipService.filterShipsByDate(after, before))
-                        .and(shipService.filterShipsByUsage(isUsed))
-                        .and(shipService.filterShipsBySpeed(minSpeed, maxSpeed))
-                        .and(shipService.filterShipsByCrewSize(minCrewSize, maxCrewSize))
-                        .and(shipService.filterShipsByRating(minRating, maxRating)),
-                Pageable.unpaged()).getNumberOfElements();
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed,
+                minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
 
-        return new ResponseEntity<>(shipsCount, HttpStatus.OK);
+        return query(() -> {
+            log.info("Getting count for list of all ships...");
+            return new ResponseEntity<>(shipService.getShipsCount(filter), HttpStatus.OK);
+        });
     }
 
 
+    @GetMapping(value = "/ships/export", produces = NDJSON_VALUE)
+    public void exportShips(@RequestParam(value = "name", required = false) String name,
+                            @RequestParam(value = "planet", required = false) String planet,
+                            @RequestParam(value = "shipType", required = false) ShipType shipType,
+                            @RequestParam(value = "after", required = false) Long after,
+                            @RequestParam(value = "before", required = false) Long before,
+                            @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                            @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                            @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                            @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                            @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                            @RequestParam(value = "minRating", required = false) Double minRating,
+                            @RequestParam(value = "maxRating", required = false) Double maxRating,
+                            HttpServletResponse response) throws IOException {
+
+        log.info("Running method 'exportShips()'...");
+
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed,
+                minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
+
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // one flush when the generator closes, not one per ship
+        ObjectWriter writer = objectMapper.writerFor(Ship.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            shipService.exportShips(filter, ship -> {
+                try {
+                    writer.writeValue(generator, ship);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     @PostMapping(value = "/ships")
     public ResponseEntity<Ship> createNewShip(@RequestBody Ship ship) {
 
@@ -120,34 +297,100 @@ public class ShipController {
         return new ResponseEntity<>(ship, HttpStatus.OK);
     }
 
+    @PostMapping(value = "/ships/batch")
+    public ResponseEntity<List<ShipBatchResult>> createNewShips(@RequestBody List<Ship> ships) {
+
+        log.info("Running method 'createNewShips()'...");
+
+        if (ships.isEmpty()) {
+            log.debug("Empty list of ships to adding...");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<ShipBatchResult> results;
+        try {
+            log.info("Try add " + ships.size() + " new ships to database...");
+            results = shipService.addNewShips(ships);
+        } catch (IllegalArgumentException e) {
+            log.debug(e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/ships/rerate")
+    public ResponseEntity<ShipRerateStatus> startRerate(
+            @RequestParam(value = "restart", required = false, defaultValue = "false") Boolean restart) {
+
+        log.info("Running method 'startRerate()'...");
+
+        // the job reads and writes the ship table, which the log replaces
+        if (shipService == logShipService) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+                    "Re-rating works on the database and is not supported with ships.storage=log");
+        }
+
+        if (!shipRerateJob.start(restart)) {
+            log.debug("Re-rating is already running...");
+            return new ResponseEntity<>(shipRerateJob.getStatus(), HttpStatus.CONFLICT);
+        }
+
+        return new ResponseEntity<>(shipRerateJob.getStatus(), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping(value = "/ships/rerate")
+    public ResponseEntity<ShipRerateStatus> showRerateStatus() {
+
+        log.info("Running method 'showRerateStatus()'...");
+
+        return new ResponseEntity<>(shipRerateJob.getStatus(), HttpStatus.OK);
+    }
+
+    @DeleteMapping(value = "/ships/rerate")
+    public ResponseEntity<ShipRerateStatus> stopRerate() {
+
+        log.info("Running method 'stopRerate()'...");
+
+        shipRerateJob.stop();
+        return new ResponseEntity<>(shipRerateJob.getStatus(), HttpStatus.ACCEPTED);
+    }
+
     @GetMapping(value = "/ships/{id}")
-    public ResponseEntity<Ship> getShipById(@PathVariable("id") Long id) {
+    public CompletableFuture<ResponseEntity<Ship>> getShipById(@PathVariable("id") Long id) {
 
         log.info("Running method 'getShipById()'...");
 
         log.info("Getting ship by id: " + id + "...");
-        Ship ship;
         if (id <= 0) {
             log.debug("Incorrect id. Id must be > 0...");
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
 
-        if (!shipService.isExists(id)) {
-            log.debug(id + " - is not exists...");
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        try {
-            ship = shipService.findById(id);
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
-        log.info("Ship is found: " + ship.toString());
-        return new ResponseEntity<>(ship, HttpStatus.OK);
+        return query(() -> {
+            Ship ship;
+            if (!shipService.isExists(id)) {
+                log.debug(id + " - is not exists...");
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            try {
+                ship = shipService.findById(id);
+            } catch (Exception e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            log.info("Ship is found: " + ship.toString());
+            return new ResponseEntity<>(ship, versionHeaders(ship), HttpStatus.OK);
+        });
     }
 
+    /**
+     * Updates the non-null fields of the ship. With an If-Match header carrying the ETag of
+     * GET /rest/ships/{id}, the update applies only if nobody changed the ship since; 409 otherwise.
+     */
     @PostMapping(value = "/ships/{id}")
-    public ResponseEntity<Ship> updateShip(@PathVariable("id") Long id, @RequestBody Ship ship) {
+    public ResponseEntity<Ship> updateShip(@PathVariable("id") Long id, @RequestBody Ship ship,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         log.info("Running method 'updateShip()'...");
 
@@ -156,19 +399,46 @@ public class ShipController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        if (!shipService.isExists(id)) {
-            log.debug(id + " - is not exists...");
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        Long expectedVersion;
+        try {
+            expectedVersion = parseVersion(ifMatch);
+        } catch (NumberFormatException e) {
+            log.debug("Incorrect If-Match header - " + ifMatch + "...");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
         try {
             log.info("Try update ship in database...");
-            return new ResponseEntity<>(shipService.updateShip(id, ship), HttpStatus.OK);
+            Ship updatedShip = shipService.updateShip(id, ship, expectedVersion);
+            return new ResponseEntity<>(updatedShip, versionHeaders(updatedShip), HttpStatus.OK);
+        } catch (ResponseStatusException e) {
+            log.debug("Ship " + id + " is not updated: " + e.getStatus() + "...");
+            return new ResponseEntity<>(e.getStatus());
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
+    private static HttpHeaders versionHeaders(Ship ship) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + ship.getVersion() + "\"");
+        return headers;
+    }
+
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.valueOf(tag);
+    }
+
     @DeleteMapping(value = "/ships/{id}")
     public ResponseEntity<Ship> deleteShip(@PathVariable("id") Long id) {
 
@@ -194,4 +464,10 @@ public class ShipController {
         log.info("Ship with id: " + id + " is delete...");
         return new ResponseEntity<>(HttpStatus.OK);
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> rejectBusy(RejectedExecutionException e) {
+        log.debug(e.getMessage());
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
\ No newline at end of file
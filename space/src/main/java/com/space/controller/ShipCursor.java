@@ -0,0 +1,66 @@
+package com.space.controller;
+
+import com.space.model.ShipView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort key and id of the last ship on a page.
+ */
+public class ShipCursor {
+
+    private final ShipOrder order;
+    private final Comparable<?> value;
+    private final Long id;
+
+    private ShipCursor(ShipOrder order, Comparable<?> value, Long id) {
+        this.order = order;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ShipCursor of(ShipOrder order, ShipView ship) {
+        switch (order) {
+            case SPEED:
+                return new ShipCursor(order, ship.getSpeed(), ship.getId());
+            case DATE:
+                return new ShipCursor(order, ship.getProdDate().getTime(), ship.getId());
+            case RATING:
+                return new ShipCursor(order, ship.getRating(), ship.getId());
+            default:
+                return new ShipCursor(order, ship.getId(), ship.getId());
+        }
+    }
+
+    public static ShipCursor decode(String token, ShipOrder order) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+        if (parts.length != 3 || !order.name().equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor does not match order " + order);
+        }
+        Long id = Long.valueOf(parts[2]);
+        switch (order) {
+            case SPEED:
+            case RATING:
+                return new ShipCursor(order, Double.valueOf(parts[1]), id);
+            case DATE:
+                return new ShipCursor(order, Long.valueOf(parts[1]), id);
+            default:
+                return new ShipCursor(order, id, id);
+        }
+    }
+
+    public String encode() {
+        String raw = order.name() + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Comparable<?> getValue() {
+        return order == ShipOrder.DATE ? new Date((Long) value) : value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -1,5 +1,7 @@
 package com.space.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.util.Date;
@@ -50,6 +52,12 @@ public class Ship {
     @Column(name = "rating")
     private Double rating;
 
+    // bumped by every update; clients see it as the ETag of GET /rest/ships/{id}
+    @JsonIgnore
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Ship() {
     }
 
@@ -125,6 +133,14 @@ public class Ship {
         this.rating = rating;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Ship{" +
@@ -0,0 +1,84 @@
+package com.space.model;
+
+import java.util.Date;
+
+/**
+ * Read-only snapshot of a ship, selected column by column for listings. The fields mirror
+ * {@link Ship} in name and order, so both serialize to the same JSON.
+ */
+public final class ShipView {
+
+    private final Long id;
+    private final String name;
+    private final String planet;
+    private final ShipType shipType;
+    private final Date prodDate;
+    private final Boolean isUsed;
+    private final Double speed;
+    private final Integer crewSize;
+    private final Double rating;
+
+    public ShipView(Long id, String name, String planet, ShipType shipType, Date prodDate, Boolean isUsed,
+                    Double speed, Integer crewSize, Double rating) {
+        this.id = id;
+        this.name = name;
+        this.planet = planet;
+        this.shipType = shipType;
+        this.prodDate = prodDate;
+        this.isUsed = isUsed;
+        this.speed = speed;
+        this.crewSize = crewSize;
+        this.rating = rating;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPlanet() {
+        return planet;
+    }
+
+    public ShipType getShipType() {
+        return shipType;
+    }
+
+    public Date getProdDate() {
+        return prodDate;
+    }
+
+    public Boolean getUsed() {
+        return isUsed;
+    }
+
+    public Double getSpeed() {
+        return speed;
+    }
+
+    public Integer getCrewSize() {
+        return crewSize;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    @Override
+    public String toString() {
+        return "ShipView{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", planet='" + planet + '\'' +
+                ", shipType=" + shipType +
+                ", prodDate=" + prodDate +
+                ", isUsed=" + isUsed +
+                ", speed=" + speed +
+                ", crewSize=" + crewSize +
+                ", rating=" + rating +
+                '}';
+    }
+}
@@ -0,0 +1,181 @@
+package com.space.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends reads to replicas and everything else to the primary. A read is a connection opened in a
+ * read-only transaction or inside {@link #read}. A thread pinned to the primary reads from the
+ * primary too, which is how a client that has just written sees its own write.
+ * <p>
+ * Connections are opened at the first statement rather than when a transaction begins, because
+ * a transaction is only marked read-only once it has begun.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private static final ThreadLocal<Boolean> READ = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final Router router;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Selection selection) {
+        this(new Router(primary, replicas, selection));
+    }
+
+    private ReplicaRoutingDataSource(Router router) {
+        super(router);
+        this.router = router;
+    }
+
+    /**
+     * Runs the query against a replica unless the thread is pinned to the primary.
+     */
+    public static <T> T read(Supplier<T> query) {
+        return with(READ, query);
+    }
+
+    /**
+     * Runs the work with every read going to the primary.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        return with(PINNED, work);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Pins the current thread to the primary, or releases it, for callers that cannot wrap the
+     * work in {@link #onPrimary}.
+     */
+    public static void setPinnedToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED.set(Boolean.TRUE);
+        } else {
+            PINNED.remove();
+        }
+    }
+
+    /**
+     * The task, running on whatever thread with the pin of the thread that submits it.
+     */
+    public static Runnable propagatePin(Runnable task) {
+        if (!isPinnedToPrimary()) {
+            return task;
+        }
+        return () -> onPrimary(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public DataSource getPrimary() {
+        return router.primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        return router.replicas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : router.replicas) {
+            close(dataSource);
+        }
+        close(router.primary);
+    }
+
+    private static void close(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+
+    private static <T> T with(ThreadLocal<Boolean> flag, Supplier<T> work) {
+        if (flag.get() != null) {
+            return work.get();
+        }
+        flag.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            flag.remove();
+        }
+    }
+
+    private static final class Router extends AbstractDataSource {
+        private final DataSource primary;
+        private final List<DataSource> replicas;
+        private final Selection selection;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Router(DataSource primary, List<DataSource> replicas, Selection selection) {
+            this.primary = primary;
+            this.replicas = new ArrayList<>(replicas);
+            this.selection = selection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return target().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return target().getConnection(username, password);
+        }
+
+        private DataSource target() {
+            boolean read = READ.get() != null || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            if (!read || replicas.isEmpty() || isPinnedToPrimary()) {
+                return primary;
+            }
+
+            int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+            if (selection == Selection.ROUND_ROBIN) {
+                return replicas.get(first);
+            }
+
+            // starting from the round-robin choice, so equally loaded replicas take turns
+            DataSource leastLoaded = null;
+            int leastActive = Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                DataSource replica = replicas.get((first + i) % replicas.size());
+                int active = activeConnections(replica);
+                if (active < leastActive) {
+                    leastLoaded = replica;
+                    leastActive = active;
+                }
+            }
+            return leastLoaded;
+        }
+
+        private static int activeConnections(DataSource dataSource) {
+            if (dataSource instanceof HikariDataSource) {
+                HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+                if (pool != null) {
+                    return pool.getActiveConnections();
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access for bulk reads and writes. IDENTITY ids keep Hibernate from batching
+ * inserts, and re-rating needs only five columns of each row, so these go straight to the driver.
+ */
+@Repository("shipJdbcRepository")
+public class ShipJdbcRepository {
+
+    private static final String INSERT_SQL = "insert into ship(name, planet, shipType, prodDate, isUsed, " +
+            "speed, crewSize, rating) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String RATING_INPUTS_SQL = "select id, prodDate, speed, isUsed, rating, version from ship " +
+            "where id > ? and prodDate is not null and speed is not null and isUsed is not null " +
+            "order by id limit ?";
+
+    // the version read with the inputs is part of the condition, so a ship edited after its chunk
+    // was read keeps the rating its own update computed, and a rerated ship moves on to a new
+    // version like after any other write
+    private static final String UPDATE_RATING_SQL = "update ship set rating = ?, version = version + 1 " +
+            "where id = ? and version = ?";
+
+    private static final String RERATE_JOB = "rating";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShipJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Inserts the ships as one JDBC batch and sets their generated ids and initial versions.
+     * Joins the caller's transaction.
+     */
+    public void insertAll(List<Ship> ships) {
+        jdbcTemplate.execute(connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                (PreparedStatementCallback<Void>) statement -> {
+                    executeBatch(statement, ships);
+                    return null;
+                });
+    }
+
+    /**
+     * Writes the non-null fields of {@code changes} and its rating to the ship in one statement,
+     * provided the ship is still at {@code version}, and increments the version.
+     *
+     * @return false if the ship was changed or deleted since that version
+     */
+    public boolean updateIfVersion(long id, long version, Ship changes) {
+        StringBuilder sql = new StringBuilder("update ship set ");
+        List<Object> args = new ArrayList<>();
+        set(sql, args, "name", changes.getName());
+        set(sql, args, "planet", changes.getPlanet());
+        set(sql, args, "shipType", changes.getShipType() == null ? null : changes.getShipType().name());
+        set(sql, args, "prodDate", changes.getProdDate() == null ? null
+                : new java.sql.Date(changes.getProdDate().getTime()));
+        set(sql, args, "isUsed", changes.getUsed());
+        set(sql, args, "speed", changes.getSpeed());
+        set(sql, args, "crewSize", changes.getCrewSize());
+        set(sql, args, "rating", changes.getRating());
+        sql.append("version = version + 1 where id = ? and version = ?");
+        args.add(id);
+        args.add(version);
+
+        return jdbcTemplate.update(sql.toString(), args.toArray()) == 1;
+    }
+
+    /**
+     * Deletes the ship whatever its version, unlike the JPA delete, which fails if the ship was
+     * updated since it was loaded.
+     *
+     * @return false if there was no such ship
+     */
+    public boolean deleteById(long id) {
+        return jdbcTemplate.update("delete from ship where id = ?", id) == 1;
+    }
+
+    /**
+     * Fills the chunk with the rating inputs of the ships following {@code afterId} in id order.
+     *
+     * @return the number of ships read, 0 past the last ship
+     */
+    public int findRatingInputs(long afterId, ShipRatingChunk chunk) {
+        jdbcTemplate.query(RATING_INPUTS_SQL, resultSet -> {
+            chunk.add(resultSet.getLong(1), resultSet.getDate(2).getTime(), resultSet.getDouble(3),
+                    resultSet.getBoolean(4), resultSet.getDouble(5), resultSet.getLong(6));
+        }, afterId, chunk.capacity());
+        return chunk.size();
+    }
+
+    public long countAfter(long afterId) {
+        return jdbcTemplate.queryForObject("select count(*) from ship where id > ?", Long.class, afterId);
+    }
+
+    /**
+     * Writes the new ratings of the first {@code count} ships of the chunk as one JDBC batch,
+     * each provided the ship is still at the version it was read with, and increments the
+     * versions. Joins the caller's transaction.
+     *
+     * @return for each of the ships, whether its row was changed
+     */
+    public boolean[] updateRatings(ShipRatingChunk chunk, int[] indexes, double[] ratings, int count) {
+        return jdbcTemplate.execute(UPDATE_RATING_SQL, (PreparedStatementCallback<boolean[]>) statement -> {
+            for (int i = 0; i < count; i++) {
+                int index = indexes[i];
+                statement.setDouble(1, ratings[index]);
+                statement.setLong(2, chunk.getIds()[index]);
+                statement.setLong(3, chunk.getVersions()[index]);
+                statement.addBatch();
+            }
+
+            int[] rows = statement.executeBatch();
+            boolean[] updated = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                updated[i] = rows[i] == Statement.SUCCESS_NO_INFO || rows[i] > 0;
+            }
+            return updated;
+        });
+    }
+
+    public Optional<ShipRerateCheckpoint> findRerateCheckpoint() {
+        return jdbcTemplate.query("select lastId, processed, updated from ship_rerate_checkpoint where job = ?",
+                resultSet -> resultSet.next()
+                        ? Optional.of(new ShipRerateCheckpoint(resultSet.getLong(1), resultSet.getLong(2),
+                        resultSet.getLong(3)))
+                        : Optional.empty(),
+                RERATE_JOB);
+    }
+
+    public void saveRerateCheckpoint(ShipRerateCheckpoint checkpoint) {
+        int rows = jdbcTemplate.update("update ship_rerate_checkpoint set lastId = ?, processed = ?, updated = ? " +
+                        "where job = ?",
+                checkpoint.getLastId(), checkpoint.getProcessed(), checkpoint.getUpdated(), RERATE_JOB);
+        if (rows == 0) {
+            jdbcTemplate.update("insert into ship_rerate_checkpoint(job, lastId, processed, updated) " +
+                            "values (?, ?, ?, ?)",
+                    RERATE_JOB, checkpoint.getLastId(), checkpoint.getProcessed(), checkpoint.getUpdated());
+        }
+    }
+
+    public void deleteRerateCheckpoint() {
+        jdbcTemplate.update("delete from ship_rerate_checkpoint where job = ?", RERATE_JOB);
+    }
+
+    private static void set(StringBuilder sql, List<Object> args, String column, Object value) {
+        if (value != null) {
+            sql.append(column).append(" = ?, ");
+            args.add(value);
+        }
+    }
+
+    private void executeBatch(PreparedStatement statement, List<Ship> ships) throws SQLException {
+        for (Ship ship : ships) {
+            statement.setString(1, ship.getName());
+            statement.setString(2, ship.getPlanet());
+            statement.setString(3, ship.getShipType() == null ? null : ship.getShipType().name());
+            statement.setDate(4, new java.sql.Date(ship.getProdDate().getTime()));
+            statement.setBoolean(5, ship.getUsed());
+            statement.setDouble(6, ship.getSpeed());
+            statement.setInt(7, ship.getCrewSize());
+            statement.setDouble(8, ship.getRating());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (Ship ship : ships) {
+                if (keys.next()) {
+                    ship.setId(keys.getLong(1));
+                    ship.setVersion(0L);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Ships stored without a database: every write appends a record to a log file written through
+ * memory-mapped regions, and the live ships are kept in memory.
+ * <p>
+ * Records are 64-byte slots with a CRC32 in their last four bytes. A ship takes one slot holding
+ * every column but the texts, which are interned per file: the first ship of a file with a name
+ * or planet is preceded by a record giving the text a code. A record never straddles two
+ * regions; one that does not fit is preceded by padding to the next region.
+ * <p>
+ * Appends land in the page cache, so they survive a crash of the process at once. The regions
+ * are forced to disk every {@code syncIntervalMs} in one group commit, or after every write
+ * with 0, so a crash of the machine loses at most the writes of one interval. A snapshot
+ * switches the writes to a log of the next generation, writes the ships as of that moment to
+ * a snapshot file of the same generation and then deletes the older files. Opening the
+ * directory loads the newest snapshot and replays the logs since, up to the first record that
+ * is torn or fails its checksum; the log is cut there and appending resumes.
+ */
+public class ShipLog implements Closeable {
+
+    private static Logger log = getLogger(ShipLog.class);
+
+    static final int SLOT = 64;
+
+    private static final int MAGIC = 0x53484950;
+    private static final int MAX_TEXT_BYTES = 1024;
+    private static final Pattern FILE = Pattern.compile("ships-(\\d+)\\.(log|snapshot)");
+
+    private static final byte END = 0;
+    private static final byte HEADER = 1;
+    private static final byte SHIP = 2;
+    private static final byte DELETE = 3;
+    private static final byte TEXT = 4;
+    private static final byte NEXT_ID = 5;
+    private static final byte PADDING = 6;
+
+    private final Path directory;
+    private final long regionBytes;
+    private final long syncIntervalMs;
+    private final Map<Long, Ship> ships = new ConcurrentHashMap<>();
+    private final Object snapshotLock = new Object();
+
+    private ScheduledExecutorService scheduler;
+    private Segment segment;
+    private long nextId = 1;
+
+    private ShipLog(Path directory, long regionBytes, long syncIntervalMs) {
+        if (regionBytes % SLOT != 0 || regionBytes < 4096 || regionBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Region size must be a multiple of " + SLOT
+                    + " from 4 KB to 2 GB: " + regionBytes);
+        }
+        this.directory = directory;
+        this.regionBytes = regionBytes;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    /**
+     * Recovers the ships stored in the directory, creating it if needed, and schedules the
+     * group commits and, with a positive {@code snapshotIntervalMs}, the snapshots.
+     */
+    public static ShipLog open(Path directory, long regionBytes, long syncIntervalMs, long snapshotIntervalMs)
+            throws IOException {
+        ShipLog shipLog = new ShipLog(directory, regionBytes, syncIntervalMs);
+        shipLog.recover();
+
+        shipLog.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "ship-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (syncIntervalMs > 0) {
+            shipLog.scheduler.scheduleWithFixedDelay(shipLog::sync, syncIntervalMs, syncIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+        if (snapshotIntervalMs > 0) {
+            shipLog.scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    shipLog.snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Ship log snapshot failed", e);
+                }
+            }, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        return shipLog;
+    }
+
+    public Ship get(long id) {
+        return ships.get(id);
+    }
+
+    public int size() {
+        return ships.size();
+    }
+
+    /**
+     * The live ships in no particular order. They are shared, so they must not be modified.
+     */
+    public Collection<Ship> ships() {
+        return Collections.unmodifiableCollection(ships.values());
+    }
+
+    /**
+     * Stores a new ship under the next id with version 0, setting both on the ship.
+     */
+    public synchronized void insert(Ship ship) {
+        insertAll(Collections.singletonList(ship));
+    }
+
+    public synchronized void insertAll(List<Ship> newShips) {
+        newShips.forEach(ShipLog::checkColumns);
+        for (Ship ship : newShips) {
+            ship.setId(nextId++);
+            ship.setVersion(0L);
+            segment.writeShip(ship);
+            ships.put(ship.getId(), ship);
+        }
+        syncIfImmediate();
+    }
+
+    /**
+     * Stores the ship in place of the one with its id, if that one is still at
+     * {@code expectedVersion}.
+     */
+    public synchronized boolean replace(Ship ship, long expectedVersion) {
+        checkColumns(ship);
+        Ship current = ships.get(ship.getId());
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        segment.writeShip(ship);
+        syncIfImmediate();
+        ships.put(ship.getId(), ship);
+        return true;
+    }
+
+    public synchronized boolean delete(long id) {
+        if (!ships.containsKey(id)) {
+            return false;
+        }
+        segment.writeDelete(id);
+        syncIfImmediate();
+        ships.remove(id);
+        return true;
+    }
+
+    /**
+     * Forces the records appended so far to disk.
+     */
+    public void sync() {
+        Segment current;
+        synchronized (this) {
+            current = segment;
+        }
+        try {
+            current.force();
+        } catch (RuntimeException e) {
+            log.error("Ship log sync failed", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot and deletes the files it replaces. Does nothing if nothing has been
+     * written since the last one.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            List<Ship> state;
+            long snapshotNextId;
+            long generation;
+            synchronized (this) {
+                if (segment.position == SLOT) {
+                    return;
+                }
+                state = new ArrayList<>(ships.values());
+                snapshotNextId = nextId;
+                generation = segment.generation + 1;
+                Segment previous = segment;
+                segment = Segment.create(file(generation, "log"), generation, regionBytes);
+                previous.close();
+            }
+
+            long start = System.nanoTime();
+            Path temporary = directory.resolve("ships-" + generation + ".snapshot.tmp");
+            Segment snapshot = Segment.create(temporary, generation, regionBytes);
+            snapshot.writeNextId(snapshotNextId);
+            for (Ship ship : state) {
+                snapshot.writeShip(ship);
+            }
+            snapshot.close();
+            Files.move(temporary, file(generation, "snapshot"), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            for (Path path : files("log").headMap(generation).values()) {
+                Files.deleteIfExists(path);
+            }
+            for (Path path : files("snapshot").headMap(generation).values()) {
+                Files.deleteIfExists(path);
+            }
+            log.info("Ship log snapshot " + generation + " of " + state.size() + " ships written in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                segment.close();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (path.getFileName().toString().endsWith(".snapshot.tmp")) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        TreeMap<Long, Path> snapshots = files("snapshot");
+        long generation = snapshots.isEmpty() ? 1 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            replay(snapshots.lastEntry().getValue());
+        }
+
+        TreeMap<Long, Path> logs = new TreeMap<>(files("log").tailMap(generation));
+        Map.Entry<Long, Path> last = logs.pollLastEntry();
+        for (Path path : logs.values()) {
+            replay(path);
+        }
+        if (last == null) {
+            segment = Segment.create(file(generation, "log"), generation, regionBytes);
+        } else {
+            Replay tail = replay(last.getValue());
+            segment = Segment.resume(last.getValue(), last.getKey(),
+                    tail.regionBytes > 0 ? tail.regionBytes : regionBytes, tail.end, tail.texts);
+        }
+        log.info("Ship log recovered " + ships.size() + " ships in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private Replay replay(Path path) throws IOException {
+        Replay replay = new Replay();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(SLOT);
+            channel.read(header, 0);
+            if (size < SLOT || header.get(0) != HEADER || header.getInt(4) != MAGIC || !valid(header, 0, 1)) {
+                return replay;
+            }
+            replay.regionBytes = header.getLong(8);
+            replay.end = SLOT;
+
+            while (replay.end < size) {
+                long regionStart = replay.end / replay.regionBytes * replay.regionBytes;
+                long regionEnd = Math.min(size, regionStart + replay.regionBytes);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                        regionEnd - regionStart);
+                while (replay.end < regionEnd) {
+                    int offset = (int) (replay.end - regionStart);
+                    byte type = region.get(offset);
+                    int slots = type == TEXT ? textSlots(region.getInt(offset + 8)) : 1;
+                    if (type == END || slots < 0 || offset + slots * SLOT > region.limit()
+                            || !valid(region, offset, slots)) {
+                        return replay;
+                    }
+                    if (type == PADDING) {
+                        replay.end = regionStart + replay.regionBytes;
+                        break;
+                    }
+                    if (!apply(replay, region, offset, type)) {
+                        return replay;
+                    }
+                    replay.end += slots * SLOT;
+                }
+            }
+            return replay;
+        }
+    }
+
+    private boolean apply(Replay replay, ByteBuffer region, int offset, byte type) {
+        switch (type) {
+            case SHIP:
+                int name = region.getInt(offset + 4);
+                int planet = region.getInt(offset + 52);
+                byte shipType = region.get(offset + 1);
+                if (name < 0 || name >= replay.texts.size() || planet < 0 || planet >= replay.texts.size()
+                        || shipType < 0 || shipType >= ShipType.values().length) {
+                    return false;
+                }
+                Ship ship = new Ship();
+                ship.setId(region.getLong(offset + 8));
+                ship.setVersion(region.getLong(offset + 16));
+                ship.setName(replay.texts.get(name));
+                ship.setPlanet(replay.texts.get(planet));
+                ship.setShipType(ShipType.values()[shipType]);
+                ship.setProdDate(new Date(region.getLong(offset + 24)));
+                ship.setUsed(region.get(offset + 2) != 0);
+                ship.setSpeed(region.getDouble(offset + 32));
+                ship.setRating(region.getDouble(offset + 40));
+                ship.setCrewSize(region.getInt(offset + 48));
+                ships.put(ship.getId(), ship);
+                nextId = Math.max(nextId, ship.getId() + 1);
+                return true;
+            case DELETE:
+                ships.remove(region.getLong(offset + 8));
+                return true;
+            case TEXT:
+                if (region.getInt(offset + 4) != replay.texts.size()) {
+                    return false;
+                }
+                byte[] bytes = new byte[region.getInt(offset + 8)];
+                ByteBuffer text = region.duplicate();
+                text.position(offset + 12);
+                text.get(bytes);
+                replay.texts.add(new String(bytes, StandardCharsets.UTF_8));
+                return true;
+            case NEXT_ID:
+                nextId = Math.max(nextId, region.getLong(offset + 8));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void syncIfImmediate() {
+        if (syncIntervalMs <= 0) {
+            segment.force();
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can sync a directory, the rename itself is atomic
+            log.debug("Cannot sync " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private Path file(long generation, String kind) {
+        return directory.resolve("ships-" + generation + "." + kind);
+    }
+
+    private TreeMap<Long, Path> files(String kind) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Matcher matcher = FILE.matcher(path.getFileName().toString());
+                if (matcher.matches() && kind.equals(matcher.group(2))) {
+                    files.put(Long.valueOf(matcher.group(1)), path);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static int textSlots(int length) {
+        if (length < 0 || length > MAX_TEXT_BYTES) {
+            return -1;
+        }
+        return (12 + length + 4 + SLOT - 1) / SLOT;
+    }
+
+    private static boolean valid(ByteBuffer buffer, int offset, int slots) {
+        int end = offset + slots * SLOT - 4;
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(end).position(offset);
+        CRC32 crc = new CRC32();
+        crc.update(checked);
+        return (int) crc.getValue() == buffer.getInt(end);
+    }
+
+    /**
+     * Rejects a ship with an empty column; the stores that keep ships outside the table have no
+     * encoding for null.
+     */
+    public static void checkColumns(Ship ship) {
+        if (ship.getName() == null || ship.getPlanet() == null || ship.getShipType() == null
+                || ship.getProdDate() == null || ship.getUsed() == null || ship.getSpeed() == null
+                || ship.getCrewSize() == null || ship.getRating() == null) {
+            throw new IllegalArgumentException("Ship " + ship.getId() + " has empty columns");
+        }
+    }
+
+    private static final class Replay {
+        private long regionBytes;
+        private long end;
+        private final List<String> texts = new ArrayList<>();
+    }
+
+    /**
+     * One log or snapshot file being appended to, mapped region by region as it grows.
+     */
+    private static final class Segment {
+        private final FileChannel channel;
+        private final long generation;
+        private final long regionBytes;
+        private final List<MappedByteBuffer> regions = new CopyOnWriteArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final byte[] record = new byte[(textSlots(MAX_TEXT_BYTES) + 1) * SLOT];
+        private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        private final CRC32 crc = new CRC32();
+
+        private volatile long position;
+        private long synced;
+
+        private Segment(FileChannel channel, long generation, long regionBytes) {
+            this.channel = channel;
+            this.generation = generation;
+            this.regionBytes = regionBytes;
+        }
+
+        static Segment create(Path path, long generation, long regionBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            Segment segment = new Segment(channel, generation, regionBytes);
+            segment.writeHeader();
+            return segment;
+        }
+
+        /**
+         * Reopens a log for appending after its last intact record, dropping whatever follows.
+         */
+        static Segment resume(Path path, long generation, long regionBytes, long end, List<String> texts)
+                throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(channel, generation, regionBytes);
+            channel.truncate(end);
+            if (end < SLOT) {
+                segment.writeHeader();
+                return segment;
+            }
+            for (String text : texts) {
+                segment.codes.put(text, segment.codes.size());
+            }
+            segment.position = end;
+            segment.synced = end;
+            return segment;
+        }
+
+        void writeShip(Ship ship) {
+            int name = code(ship.getName());
+            int planet = code(ship.getPlanet());
+            ByteBuffer buffer = begin(SHIP, 1);
+            buffer.put(1, (byte) ship.getShipType().ordinal());
+            buffer.put(2, ship.getUsed() ? (byte) 1 : 0);
+            buffer.putInt(4, name);
+            buffer.putLong(8, ship.getId());
+            buffer.putLong(16, ship.getVersion());
+            buffer.putLong(24, ship.getProdDate().getTime());
+            buffer.putDouble(32, ship.getSpeed());
+            buffer.putDouble(40, ship.getRating());
+            buffer.putInt(48, ship.getCrewSize());
+            buffer.putInt(52, planet);
+            append(1);
+        }
+
+        void writeDelete(long id) {
+            begin(DELETE, 1).putLong(8, id);
+            append(1);
+        }
+
+        void writeNextId(long nextId) {
+            begin(NEXT_ID, 1).putLong(8, nextId);
+            append(1);
+        }
+
+        synchronized void force() {
+            long end = position;
+            if (end == synced) {
+                return;
+            }
+            int first = (int) (synced / regionBytes);
+            int last = (int) ((end - 1) / regionBytes);
+            for (int i = first; i <= last && i < regions.size(); i++) {
+                regions.get(i).force();
+            }
+            synced = end;
+        }
+
+        synchronized void close() {
+            force();
+            try {
+                // the mapped regions stay valid, but nothing touches them past the end any more
+                channel.truncate(position);
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeHeader() {
+            ByteBuffer buffer = begin(HEADER, 1);
+            buffer.putInt(4, MAGIC);
+            buffer.putLong(8, regionBytes);
+            buffer.putLong(16, generation);
+            append(1);
+        }
+
+        private int code(String text) {
+            Integer code = codes.get(text);
+            if (code != null) {
+                return code;
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            int slots = textSlots(bytes.length);
+            if (slots < 0) {
+                throw new IllegalArgumentException("Text longer than " + MAX_TEXT_BYTES + " bytes");
+            }
+            code = codes.size();
+            ByteBuffer buffer = begin(TEXT, slots);
+            buffer.putInt(4, code);
+            buffer.putInt(8, bytes.length);
+            System.arraycopy(bytes, 0, record, 12, bytes.length);
+            append(slots);
+            codes.put(text, code);
+            return code;
+        }
+
+        private ByteBuffer begin(byte type, int slots) {
+            Arrays.fill(record, 0, slots * SLOT, (byte) 0);
+            record[0] = type;
+            return recordBuffer;
+        }
+
+        private void append(int slots) {
+            int length = slots * SLOT;
+            long regionEnd = (position / regionBytes + 1) * regionBytes;
+            if (position + length > regionEnd) {
+                byte[] padding = new byte[SLOT];
+                padding[0] = PADDING;
+                write(padding, SLOT);
+                position = regionEnd;
+            }
+            write(record, length);
+        }
+
+        private void write(byte[] bytes, int length) {
+            crc.reset();
+            crc.update(bytes, 0, length - 4);
+            ByteBuffer.wrap(bytes).putInt(length - 4, (int) crc.getValue());
+
+            MappedByteBuffer region = region((int) (position / regionBytes));
+            ByteBuffer target = region.duplicate();
+            target.position((int) (position % regionBytes));
+            target.put(bytes, 0, length);
+            position += length;
+        }
+
+        private MappedByteBuffer region(int index) {
+            while (regions.size() <= index) {
+                try {
+                    regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * regionBytes, regionBytes));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return regions.get(index);
+        }
+    }
+}
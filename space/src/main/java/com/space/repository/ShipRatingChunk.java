@@ -0,0 +1,74 @@
+package com.space.repository;
+
+/**
+ * Rating inputs of a run of ships in id order, held in primitive arrays so a chunk can be
+ * rated in one pass without materializing entities.
+ */
+public class ShipRatingChunk {
+
+    private final long[] ids;
+    private final long[] prodDates;
+    private final double[] speeds;
+    private final boolean[] isUsed;
+    private final double[] ratings;
+    private final long[] versions;
+    private int size;
+
+    public ShipRatingChunk(int capacity) {
+        this.ids = new long[capacity];
+        this.prodDates = new long[capacity];
+        this.speeds = new double[capacity];
+        this.isUsed = new boolean[capacity];
+        this.ratings = new double[capacity];
+        this.versions = new long[capacity];
+    }
+
+    void add(long id, long prodDate, double speed, boolean used, double rating, long version) {
+        ids[size] = id;
+        prodDates[size] = prodDate;
+        speeds[size] = speed;
+        isUsed[size] = used;
+        ratings[size] = rating;
+        versions[size] = version;
+        size++;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long lastId() {
+        return ids[size - 1];
+    }
+
+    public long[] getIds() {
+        return ids;
+    }
+
+    public long[] getProdDates() {
+        return prodDates;
+    }
+
+    public double[] getSpeeds() {
+        return speeds;
+    }
+
+    public boolean[] getUsed() {
+        return isUsed;
+    }
+
+    /**
+     * The ratings currently stored on the rows.
+     */
+    public double[] getRatings() {
+        return ratings;
+    }
+
+    public long[] getVersions() {
+        return versions;
+    }
+}
@@ -3,9 +3,15 @@ package com.space.repository;
 import com.space.model.Ship;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository("shipRepository")
-public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship> {
+public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship>,
+        ShipRepositoryCustom {
 
+    @Query("select s.id, s.name, s.planet from Ship s")
+    List<Object[]> findAllNamesAndPlanets();
 }
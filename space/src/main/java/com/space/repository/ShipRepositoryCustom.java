@@ -0,0 +1,23 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipView;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface ShipRepositoryCustom {
+
+    List<ShipView> findViews(Specification<Ship> shipSpecification, Sort sort, long offset, int limit);
+
+    List<ShipView> findViews(String jpql, Map<String, Object> parameters, long offset, int limit);
+
+    long countShips(String jpql, Map<String, Object> parameters);
+
+    @Transactional(readOnly = true)
+    void forEach(Specification<Ship> shipSpecification, Sort sort, int fetchSize, Consumer<Ship> action);
+}
@@ -0,0 +1,127 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipView;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class ShipRepositoryCustomImpl implements ShipRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Selects the columns of matching ships straight into {@link ShipView}s: no entities are
+     * instantiated, snapshotted for dirty checking or kept in the persistence context.
+     * Unlike findAll(spec, pageable) it runs no count query.
+     */
+    @Override
+    public List<ShipView> findViews(Specification<Ship> shipSpecification, Sort sort, long offset, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ShipView> query = criteriaBuilder.createQuery(ShipView.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        query.select(criteriaBuilder.construct(ShipView.class,
+                root.get("id"), root.get("name"), root.get("planet"), root.get("shipType"), root.get("prodDate"),
+                root.get("isUsed"), root.get("speed"), root.get("crewSize"), root.get("rating")));
+        where(query, root, shipSpecification, criteriaBuilder);
+        query.orderBy(orders(root, sort, criteriaBuilder));
+
+        return ReplicaRoutingDataSource.read(() -> entityManager.createQuery(query)
+                .setHint(QueryHints.READ_ONLY, true)
+                .setFirstResult((int) offset)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * Runs a ready-made constructor-expression query, see findViews(spec, sort, offset, limit).
+     */
+    @Override
+    public List<ShipView> findViews(String jpql, Map<String, Object> parameters, long offset, int limit) {
+        TypedQuery<ShipView> query = entityManager.createQuery(jpql, ShipView.class)
+                .setHint(QueryHints.READ_ONLY, true)
+                .setFirstResult((int) offset)
+                .setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return ReplicaRoutingDataSource.read(query::getResultList);
+    }
+
+    @Override
+    public long countShips(String jpql, Map<String, Object> parameters) {
+        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+        parameters.forEach(query::setParameter);
+        return ReplicaRoutingDataSource.read(query::getSingleResult);
+    }
+
+    /**
+     * Streams matching ships through a forward-only cursor. Each ship is detached before it is
+     * handed over, so the persistence context stays empty however many rows are read.
+     */
+    @Override
+    public void forEach(Specification<Ship> shipSpecification, Sort sort, int fetchSize, Consumer<Ship> action) {
+        Query<?> query = createQuery(shipSpecification, sort).unwrap(Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+
+        ReplicaRoutingDataSource.read(() -> {
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    Ship ship = (Ship) results.get(0);
+                    entityManager.detach(ship);
+                    action.accept(ship);
+                }
+            }
+            return null;
+        });
+    }
+
+    private TypedQuery<Ship> createQuery(Specification<Ship> shipSpecification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        where(query, root, shipSpecification, criteriaBuilder);
+        query.select(root).orderBy(orders(root, sort, criteriaBuilder));
+
+        return entityManager.createQuery(query);
+    }
+
+    private static void where(CriteriaQuery<?> query, Root<Ship> root, Specification<Ship> shipSpecification,
+                              CriteriaBuilder criteriaBuilder) {
+        if (shipSpecification != null) {
+            Predicate predicate = shipSpecification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+    }
+
+    private static List<Order> orders(From<?, Ship> root, Sort sort, CriteriaBuilder criteriaBuilder) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending()
+                    ? criteriaBuilder.asc(root.get(order.getProperty()))
+                    : criteriaBuilder.desc(root.get(order.getProperty())));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,26 @@
+package com.space.repository;
+
+public class ShipRerateCheckpoint {
+
+    private final long lastId;
+    private final long processed;
+    private final long updated;
+
+    public ShipRerateCheckpoint(long lastId, long processed, long updated) {
+        this.lastId = lastId;
+        this.processed = processed;
+        this.updated = updated;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+}
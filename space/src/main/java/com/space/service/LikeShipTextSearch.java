@@ -0,0 +1,34 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+@Service("likeTextSearch")
+public class LikeShipTextSearch implements ShipTextSearch {
+
+    @Override
+    public Specification<Ship> contains(String fieldName, String text) {
+        return (Specification<Ship>) (root, query, criteriaBuilder) ->
+                text == null ? null : criteriaBuilder.like(root.get(fieldName), "%" + text + "%");
+    }
+
+    @Override
+    public Set<Long> findIds(String fieldName, String text) {
+        return null;
+    }
+
+    @Override
+    public void rebuild() {
+    }
+
+    @Override
+    public void onSave(Ship ship) {
+    }
+
+    @Override
+    public void onDelete(Long id) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.repository.ReplicaRoutingDataSource;
+import com.space.repository.ShipRepository;
+import org.slf4j.Logger;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Set;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Serves name/planet substring filters from in-process trigram indexes and turns them into
+ * primary key lookups. Patterns the index cannot answer exactly go through LIKE.
+ */
+@Service("ngramTextSearch")
+public class NgramShipTextSearch implements ShipTextSearch {
+
+    private static Logger log = getLogger(NgramShipTextSearch.class);
+
+    private static final int MAX_ID_LIST_SIZE = 1000;
+
+    @Resource(name = "shipRepository")
+    private ShipRepository shipRepository;
+
+    @Resource(name = "likeTextSearch")
+    private ShipTextSearch likeTextSearch;
+
+    private final NgramIndex nameIndex = new NgramIndex();
+    private final NgramIndex planetIndex = new NgramIndex();
+
+    @Override
+    public Specification<Ship> contains(String fieldName, String text) {
+        Set<Long> ids = findIds(fieldName, text);
+        if (ids == null) {
+            return likeTextSearch.contains(fieldName, text);
+        }
+
+        return (Specification<Ship>) (root, query, criteriaBuilder) ->
+                ids.isEmpty() ? criteriaBuilder.disjunction() : root.get("id").in(ids);
+    }
+
+    @Override
+    public Set<Long> findIds(String fieldName, String text) {
+        if (text == null) {
+            return null;
+        }
+
+        NgramIndex index = indexFor(fieldName);
+        Set<Long> ids = index == null || hasWildcards(text) ? null : index.search(text);
+        return ids == null || ids.size() > MAX_ID_LIST_SIZE ? null : ids;
+    }
+
+    @Override
+    public void rebuild() {
+        log.info("Building trigram indexes for ship names and planets...");
+        nameIndex.clear();
+        planetIndex.clear();
+        // later writes arrive through onSave, so the indexes must not start out behind a replica
+        for (Object[] row : ReplicaRoutingDataSource.onPrimary(shipRepository::findAllNamesAndPlanets)) {
+            nameIndex.put((Long) row[0], (String) row[1]);
+            planetIndex.put((Long) row[0], (String) row[2]);
+        }
+        log.info("Trigram indexes contain " + nameIndex.size() + " ships...");
+    }
+
+    @Override
+    public void onSave(Ship ship) {
+        nameIndex.put(ship.getId(), ship.getName());
+        planetIndex.put(ship.getId(), ship.getPlanet());
+    }
+
+    @Override
+    public void onDelete(Long id) {
+        nameIndex.remove(id);
+        planetIndex.remove(id);
+    }
+
+    private NgramIndex indexFor(String fieldName) {
+        switch (fieldName) {
+            case "name":
+                return nameIndex;
+            case "planet":
+                return planetIndex;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean hasWildcards(String text) {
+        return text.indexOf('%') >= 0 || text.indexOf('_') >= 0 || text.indexOf('\\') >= 0;
+    }
+}
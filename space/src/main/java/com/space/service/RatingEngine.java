@@ -0,0 +1,93 @@
+package com.space.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Ship rating and production date rules on primitive epoch millis.
+ * <p>
+ * The starts of the years around the allowed production range are computed once for the
+ * zone, so the hot path finds a year with a division and a table probe and allocates nothing.
+ * Years are local to the zone, exactly as the Calendar-based code this replaces.
+ */
+@Component
+public class RatingEngine {
+
+    public static final int MIN_YEAR = 2800;
+    public static final int MAX_YEAR = 3019;
+
+    private static final int CURRENT_YEAR = 3019;
+    private static final int FIRST_TABLE_YEAR = MIN_YEAR - 1;
+    private static final int LAST_TABLE_YEAR = MAX_YEAR + 2;
+    private static final long AVERAGE_YEAR_MILLIS = 31556952000L;
+
+    private final ZoneId zone;
+    private final long[] yearStarts;
+    private final long minProdDate;
+    private final long maxProdDate;
+
+    public RatingEngine() {
+        this(ZoneId.systemDefault());
+    }
+
+    public RatingEngine(ZoneId zone) {
+        this.zone = zone;
+        this.yearStarts = new long[LAST_TABLE_YEAR - FIRST_TABLE_YEAR + 1];
+        for (int i = 0; i < yearStarts.length; i++) {
+            yearStarts[i] = startOfYear(FIRST_TABLE_YEAR + i);
+        }
+        this.minProdDate = startOfYear(MIN_YEAR);
+        this.maxProdDate = startOfYear(MAX_YEAR + 1) - 1;
+    }
+
+    public boolean isValidProdDate(long prodDate) {
+        return prodDate >= minProdDate && prodDate <= maxProdDate;
+    }
+
+    public int yearOf(long epochMillis) {
+        int last = yearStarts.length - 1;
+        if (epochMillis < yearStarts[0] || epochMillis >= yearStarts[last]) {
+            return Instant.ofEpochMilli(epochMillis).atZone(zone).getYear();
+        }
+
+        int i = (int) ((epochMillis - yearStarts[0]) / AVERAGE_YEAR_MILLIS);
+        if (i > last - 1) {
+            i = last - 1;
+        }
+        while (epochMillis < yearStarts[i]) {
+            i--;
+        }
+        while (epochMillis >= yearStarts[i + 1]) {
+            i++;
+        }
+        return FIRST_TABLE_YEAR + i;
+    }
+
+    public double calculateRating(long prodDate, double speed, boolean isUsed) {
+        return rating(yearOf(prodDate), speed, isUsed);
+    }
+
+    /**
+     * Rates {@code count} ships given as parallel arrays, in one loop over primitives that
+     * allocates nothing.
+     */
+    public void calculateRatings(long[] prodDates, double[] speeds, boolean[] isUsed, double[] ratings, int count) {
+        for (int i = 0; i < count; i++) {
+            ratings[i] = rating(yearOf(prodDates[i]), speeds[i], isUsed[i]);
+        }
+    }
+
+    private static double rating(int year, double speed, boolean isUsed) {
+        double k = isUsed ? 0.5 : 1.0;
+
+        double currentRating = ((80 * speed * k) / (CURRENT_YEAR - year + 1));
+        return Math.round(currentRating * 100.0) / 100.0;
+    }
+
+    private long startOfYear(int year) {
+        return LocalDate.of(year, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,38 @@
+package com.space.service;
+
+public class ShipBatchResult {
+
+    private final int index;
+    private final Long id;
+    private final String error;
+
+    private ShipBatchResult(int index, Long id, String error) {
+        this.index = index;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static ShipBatchResult created(int index, Long id) {
+        return new ShipBatchResult(index, id, null);
+    }
+
+    public static ShipBatchResult failed(int index, String error) {
+        return new ShipBatchResult(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
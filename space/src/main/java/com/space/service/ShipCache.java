@@ -0,0 +1,90 @@
+package com.space.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.space.model.Ship;
+import com.space.repository.ReplicaRoutingDataSource;
+import com.space.repository.ShipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of ships by id. Missing ids are cached too, so existence checks and
+ * lookups of absent ships do not reach the database either. Misses load from the primary:
+ * a replica's answer, an absent ship included, could be behind the last write and would be
+ * served for the whole TTL.
+ */
+@Component
+public class ShipCache {
+
+    @Resource(name = "shipRepository")
+    private ShipRepository shipRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ships.cache.maxSize:10000}")
+    private long maxSize;
+
+    @Value("${ships.cache.ttlSeconds:60}")
+    private long ttlSeconds;
+
+    private LoadingCache<Long, Optional<Ship>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxSize : 0)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(id -> ReplicaRoutingDataSource.onPrimary(() -> shipRepository.findById(id)));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ships.byId");
+    }
+
+    public Optional<Ship> get(Long id) {
+        return enabled ? cache.get(id) : shipRepository.findById(id);
+    }
+
+    /**
+     * Replaces the cached copy with a ship just written, so the next lookup needs no read,
+     * unless the cache holds the same or a later version already.
+     */
+    public void put(Ship ship) {
+        if (enabled) {
+            cache.asMap().merge(ship.getId(), Optional.of(ship), (cached, written) ->
+                    cached.isPresent() && version(cached.get()) >= version(written.get()) ? cached : written);
+        }
+    }
+
+    /**
+     * Remembers that the ship is gone, so a lagging replica cannot bring it back into the cache.
+     */
+    public void putDeleted(Long id) {
+        if (enabled) {
+            cache.put(id, Optional.empty());
+        }
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static long version(Ship ship) {
+        return ship.getVersion() == null ? 0 : ship.getVersion();
+    }
+}
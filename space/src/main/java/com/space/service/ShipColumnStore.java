@@ -0,0 +1,1053 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ReplicaRoutingDataSource;
+import com.space.repository.ShipLog;
+import com.space.repository.ShipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * In-process replica of the ship table, one primitive array per column, that answers the list
+ * and count filters without the database. The table stays the source of truth: the replica is
+ * loaded from it at startup and follows the writes of this application.
+ * <p>
+ * A filter is evaluated column by column into a selection bitmap, 64 rows per word, with
+ * branch-free comparisons. Large stores are scanned in chunks on a fork-join pool: counts are
+ * summed per chunk, and each chunk keeps its own top rows of the page, which are merged.
+ * Names and planets are dictionary-encoded, so a substring or LIKE filter is matched once per
+ * distinct value. Keyset pages keep only the rows after the cursor in the same top rows. Sorts
+ * other than one {@code ShipOrder} field get null and go to the database.
+ */
+@Component
+public class ShipColumnStore {
+
+    private static Logger log = getLogger(ShipColumnStore.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Resource(name = "shipRepository")
+    private ShipRepository shipRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.columnStore.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ships.export.fetchSize:1000}")
+    private int loadFetchSize;
+
+    @Value("${ships.columnStore.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ships.columnStore.chunkRows:16384}")
+    private int chunkRows;
+
+    @Value("${ships.columnStore.tombstoneSeconds:60}")
+    private long tombstoneSeconds = 60;
+
+    private final ZoneId zone;
+    private ForkJoinPool pool;
+    private int chunkWords = Integer.MAX_VALUE;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> rows = new HashMap<>();
+    // deletion time by id, oldest first; see delete
+    private final LinkedHashMap<Long, Long> deleted = new LinkedHashMap<>();
+    private int reloading;
+    private final Dictionary names = new Dictionary();
+    private final Dictionary planets = new Dictionary();
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private int[] planetCodes = new int[INITIAL_CAPACITY];
+    private byte[] shipTypes = new byte[INITIAL_CAPACITY];
+    private int[] prodDays = new int[INITIAL_CAPACITY];
+    private long[] used = new long[INITIAL_CAPACITY >> 6];
+    private double[] speeds = new double[INITIAL_CAPACITY];
+    private int[] crewSizes = new int[INITIAL_CAPACITY];
+    private double[] ratings = new double[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+
+    public ShipColumnStore() {
+        this(ZoneId.systemDefault());
+    }
+
+    public ShipColumnStore(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * A store that scans chunks of {@code chunkRows} rows on {@code parallelism} threads.
+     */
+    public ShipColumnStore(ZoneId zone, int parallelism, int chunkRows) {
+        this.zone = zone;
+        startPool(parallelism, chunkRows);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        startPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), chunkRows);
+        log.info("Loading ships into the column store...");
+        try {
+            // later writes arrive through onSave, so the copy must not start out behind a replica
+            ReplicaRoutingDataSource.onPrimary(() -> {
+                shipRepository.forEach(null, Sort.by("id"), loadFetchSize, this::put);
+                return null;
+            });
+        } catch (IllegalArgumentException e) {
+            log.warn("Column store disabled: " + e.getMessage());
+            enabled = false;
+            return;
+        }
+        meterRegistry.gauge("ships.columns.size", this, ShipColumnStore::size);
+        log.info("Column store contains " + size() + " ships...");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies a ship the application wrote, unless the store holds the same or a later version
+     * of it already or saw it deleted: the writes of one ship may arrive out of order.
+     */
+    public void onSave(Ship ship) {
+        if (enabled) {
+            putIfNewer(ship);
+        }
+    }
+
+    public void onDelete(Long id) {
+        if (enabled) {
+            delete(id);
+        }
+    }
+
+    /**
+     * Applies a rating the rerate job wrote to the ship at {@code version}, which moved the row
+     * on to the next version, if the store holds the ship at that version too.
+     */
+    public void onRatingUpdated(Long id, long version, double rating) {
+        if (!enabled) {
+            return;
+        }
+        boolean behind;
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(id);
+            if (row != null && versions[row] == version) {
+                ratings[row] = rating;
+                versions[row] = version + 1;
+                return;
+            }
+            behind = !deleted.containsKey(id) && (row == null || versions[row] < version);
+            if (behind) {
+                reloading++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (behind) {
+            // the write the store is still waiting for carries the old rating
+            try {
+                ReplicaRoutingDataSource.onPrimary(() -> shipRepository.findById(id)).ifPresent(this::putIfNewer);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    reloading--;
+                    dropTombstones();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * The page of ships matching the filter, or null if the store cannot answer the query.
+     */
+    public List<ShipView> findViews(ShipFilter filter, Pageable pageable) {
+        SortKey sortKey = SortKey.of(pageable.getSort());
+        if (sortKey == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Scan scan = scan(filter);
+            if (scan == null) {
+                return null;
+            }
+
+            long offset = pageable.getOffset();
+            int limit = (int) Math.min(Integer.MAX_VALUE, offset + pageable.getPageSize());
+            return views(scan, sortKey, null, (int) Math.min(offset, limit), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first {@code limit} ships matching the filter that come after the ship with sort value
+     * {@code value} and id {@code id} in the order of {@code sort}, or from the first ship if
+     * {@code value} is null; null if the store cannot answer the query.
+     */
+    public List<ShipView> findViewsAfter(ShipFilter filter, Sort sort, Comparable<?> value, Long id, int limit) {
+        SortKey sortKey = SortKey.of(sort);
+        if (sortKey == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Scan scan = scan(filter);
+            if (scan == null) {
+                return null;
+            }
+            After after = value == null || id == null ? null : new After(key(sortKey, value), id);
+            return views(scan, sortKey, after, 0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The number of ships matching the filter, or null if the store cannot answer the query.
+     */
+    public Long count(ShipFilter filter) {
+        lock.readLock().lock();
+        try {
+            Scan scan = scan(filter);
+            if (scan == null) {
+                return null;
+            }
+
+            long[] selection = new long[words()];
+            return pool == null || selection.length <= chunkWords
+                    ? count(scan, selection, 0, selection.length)
+                    : pool.invoke(new CountTask(scan, selection, 0, selection.length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The ids of the ships matching the filter in ascending order, or null if the store cannot
+     * answer the query.
+     */
+    public long[] findIds(ShipFilter filter) {
+        lock.readLock().lock();
+        try {
+            Scan scan = scan(filter);
+            if (scan == null) {
+                return null;
+            }
+
+            long[] selection = new long[words()];
+            long[] matched = new long[(int) count(scan, selection, 0, selection.length)];
+            int i = 0;
+            for (int w = 0; w < selection.length; w++) {
+                long word = selection[w];
+                while (word != 0) {
+                    matched[i++] = ids[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                }
+            }
+            Arrays.sort(matched);
+            return matched;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The number of distinct names and planets held in the dictionaries.
+     */
+    int distinctTexts() {
+        lock.readLock().lock();
+        try {
+            return names.size() + planets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Ship ship) {
+        ShipLog.checkColumns(ship);
+
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(ship.getId());
+            int nameCode = names.acquire(ship.getName());
+            int planetCode = planets.acquire(ship.getPlanet());
+            if (row == null) {
+                ensureCapacity(size + 1);
+                row = size++;
+                rows.put(ship.getId(), row);
+            } else {
+                names.release(nameCodes[row]);
+                planets.release(planetCodes[row]);
+            }
+
+            ids[row] = ship.getId();
+            nameCodes[row] = nameCode;
+            planetCodes[row] = planetCode;
+            shipTypes[row] = (byte) ship.getShipType().ordinal();
+            prodDays[row] = toDay(ship.getProdDate().getTime());
+            setUsed(row, ship.getUsed());
+            speeds[row] = ship.getSpeed();
+            crewSizes[row] = ship.getCrewSize();
+            ratings[row] = ship.getRating();
+            versions[row] = version(ship);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.remove(id);
+            if (row == null) {
+                return;
+            }
+            names.release(nameCodes[row]);
+            planets.release(planetCodes[row]);
+
+            // the last row moves into the gap, so the columns stay dense
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                nameCodes[row] = nameCodes[last];
+                planetCodes[row] = planetCodes[last];
+                shipTypes[row] = shipTypes[last];
+                prodDays[row] = prodDays[last];
+                setUsed(row, isUsed(last));
+                speeds[row] = speeds[last];
+                crewSizes[row] = crewSizes[last];
+                ratings[row] = ratings[last];
+                versions[row] = versions[last];
+                rows.put(ids[row], row);
+            }
+            setUsed(last, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids are never reused, so a deleted ship stays deleted
+    void putIfNewer(Ship ship) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(ship.getId());
+            if (!deleted.containsKey(ship.getId()) && (row == null || versions[row] < version(ship))) {
+                put(ship);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the ship and keeps a tombstone for it, so that a write older than the delete that
+     * arrives after it cannot bring the ship back. Writes arrive within moments of their commit,
+     * except for the reloads of {@link #onRatingUpdated}, so a tombstone is dropped once it is
+     * {@code ships.columnStore.tombstoneSeconds} old and no reload is running.
+     */
+    void delete(Long id) {
+        lock.writeLock().lock();
+        try {
+            deleted.put(id, System.nanoTime());
+            remove(id);
+            dropTombstones();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // tombstones are in deletion order, so only the oldest need looking at
+    private void dropTombstones() {
+        if (reloading > 0) {
+            return;
+        }
+        long expired = System.nanoTime() - TimeUnit.SECONDS.toNanos(tombstoneSeconds);
+        Iterator<Long> deletedAt = deleted.values().iterator();
+        while (deletedAt.hasNext() && deletedAt.next() - expired < 0) {
+            deletedAt.remove();
+        }
+    }
+
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return deleted.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int words() {
+        return (size + 63) >>> 6;
+    }
+
+    private Scan scan(ShipFilter filter) {
+        boolean[] nameMatches = null;
+        if (filter.getName() != null) {
+            nameMatches = names.matching(filter.getName());
+            if (nameMatches == null) {
+                return null;
+            }
+        }
+        boolean[] planetMatches = null;
+        if (filter.getPlanet() != null) {
+            planetMatches = planets.matching(filter.getPlanet());
+            if (planetMatches == null) {
+                return null;
+            }
+        }
+        return new Scan(filter, nameMatches, planetMatches);
+    }
+
+    private List<ShipView> views(Scan scan, SortKey sortKey, After after, int offset, int limit) {
+        long[] selection = new long[words()];
+        TopRows top = pool == null || selection.length <= chunkWords
+                ? top(scan, sortKey, after, limit, selection, 0, selection.length)
+                : pool.invoke(new TopTask(scan, sortKey, after, limit, selection, 0, selection.length));
+
+        int[] matched = top.sorted();
+        if (offset >= matched.length) {
+            return Collections.emptyList();
+        }
+        List<ShipView> ships = new ArrayList<>(matched.length - offset);
+        for (int i = offset; i < matched.length; i++) {
+            ships.add(view(matched[i]));
+        }
+        return ships;
+    }
+
+    private long count(Scan scan, long[] selection, int fromWord, int toWord) {
+        scan.select(selection, fromWord, toWord);
+        long count = 0;
+        for (int w = fromWord; w < toWord; w++) {
+            count += Long.bitCount(selection[w]);
+        }
+        return count;
+    }
+
+    private TopRows top(Scan scan, SortKey sortKey, After after, int limit, long[] selection,
+                        int fromWord, int toWord) {
+        scan.select(selection, fromWord, toWord);
+        TopRows top = new TopRows(limit, after);
+        for (int w = fromWord; w < toWord; w++) {
+            long word = selection[w];
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                top.offer(row, key(sortKey, row), ids[row]);
+                word &= word - 1;
+            }
+        }
+        return top;
+    }
+
+    private double key(SortKey sortKey, int row) {
+        double key;
+        switch (sortKey.column) {
+            case SortKey.SPEED:
+                key = speeds[row];
+                break;
+            case SortKey.PROD_DATE:
+                key = prodDays[row];
+                break;
+            case SortKey.RATING:
+                key = ratings[row];
+                break;
+            default:
+                key = ids[row];
+        }
+        return sortKey.ascending ? key : -key;
+    }
+
+    // a cursor value has the Java type of the field it was read from
+    private double key(SortKey sortKey, Comparable<?> value) {
+        double key = sortKey.column == SortKey.PROD_DATE
+                ? toDay(((Date) value).getTime())
+                : ((Number) value).doubleValue();
+        return sortKey.ascending ? key : -key;
+    }
+
+    private static void filterRange(long[] selection, int fromWord, int toWord, double[] column,
+                                    double min, double max) {
+        for (int w = fromWord; w < toWord; w++) {
+            long word = selection[w];
+            if (word == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                double value = column[base + i];
+                bits |= (value >= min & value <= max ? 1L : 0L) << i;
+            }
+            selection[w] = word & bits;
+        }
+    }
+
+    private static void filterRange(long[] selection, int fromWord, int toWord, int[] column, int min, int max) {
+        for (int w = fromWord; w < toWord; w++) {
+            long word = selection[w];
+            if (word == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                int value = column[base + i];
+                bits |= (value >= min & value <= max ? 1L : 0L) << i;
+            }
+            selection[w] = word & bits;
+        }
+    }
+
+    private static void filterEquals(long[] selection, int fromWord, int toWord, byte[] column, byte value) {
+        for (int w = fromWord; w < toWord; w++) {
+            long word = selection[w];
+            if (word == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                bits |= (column[base + i] == value ? 1L : 0L) << i;
+            }
+            selection[w] = word & bits;
+        }
+    }
+
+    private static void filterCodes(long[] selection, int fromWord, int toWord, int[] column, boolean[] matches) {
+        for (int w = fromWord; w < toWord; w++) {
+            long word = selection[w];
+            if (word == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                bits |= (matches[column[base + i]] ? 1L : 0L) << i;
+            }
+            selection[w] = word & bits;
+        }
+    }
+
+    private void startPool(int parallelism, int chunkRows) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkWords = Math.max(1, chunkRows >>> 6);
+    }
+
+    private ShipView view(int row) {
+        Date prodDate = new Date(LocalDate.ofEpochDay(prodDays[row]).atStartOfDay(zone).toInstant().toEpochMilli());
+        return new ShipView(ids[row], names.decode(nameCodes[row]), planets.decode(planetCodes[row]),
+                ShipType.values()[shipTypes[row]], prodDate, isUsed(row), speeds[row], crewSizes[row], ratings[row]);
+    }
+
+    private boolean isUsed(int row) {
+        return (used[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setUsed(int row, boolean value) {
+        if (value) {
+            used[row >>> 6] |= 1L << row;
+        } else {
+            used[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+        planetCodes = Arrays.copyOf(planetCodes, newCapacity);
+        shipTypes = Arrays.copyOf(shipTypes, newCapacity);
+        prodDays = Arrays.copyOf(prodDays, newCapacity);
+        used = Arrays.copyOf(used, (newCapacity + 63) >>> 6);
+        speeds = Arrays.copyOf(speeds, newCapacity);
+        crewSizes = Arrays.copyOf(crewSizes, newCapacity);
+        ratings = Arrays.copyOf(ratings, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+    }
+
+    // prodDate is a DATE column, so a day matches a bound exactly when its start does
+    private int firstDayFrom(Long after) {
+        if (after == null) {
+            return Integer.MIN_VALUE;
+        }
+        int day = toDay(after);
+        return startOfDay(day) < after ? day + 1 : day;
+    }
+
+    private int lastDayUntil(Long before) {
+        return before == null ? Integer.MAX_VALUE : toDay(before);
+    }
+
+    private int toDay(long epochMillis) {
+        return (int) Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private long startOfDay(int day) {
+        return LocalDate.ofEpochDay(day).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // ships inserted with plain JDBC carry no version, the column defaults to 0
+    private static long version(Ship ship) {
+        return ship.getVersion() == null ? 0 : ship.getVersion();
+    }
+
+    private static double min(Double value) {
+        return value == null ? Double.NEGATIVE_INFINITY : value;
+    }
+
+    private static double max(Double value) {
+        return value == null ? Double.POSITIVE_INFINITY : value;
+    }
+
+    /**
+     * A filter resolved against the dictionaries and the zone, ready to be evaluated on any
+     * range of the selection bitmap.
+     */
+    private final class Scan {
+        private final ShipFilter filter;
+        private final boolean[] nameMatches;
+        private final boolean[] planetMatches;
+        private final int firstDay;
+        private final int lastDay;
+
+        private Scan(ShipFilter filter, boolean[] nameMatches, boolean[] planetMatches) {
+            this.filter = filter;
+            this.nameMatches = nameMatches;
+            this.planetMatches = planetMatches;
+            this.firstDay = firstDayFrom(filter.getAfter());
+            this.lastDay = lastDayUntil(filter.getBefore());
+        }
+
+        void select(long[] selection, int fromWord, int toWord) {
+            Arrays.fill(selection, fromWord, toWord, -1L);
+            if (toWord == selection.length && (size & 63) != 0) {
+                selection[toWord - 1] = (1L << size) - 1;
+            }
+
+            if (nameMatches != null) {
+                filterCodes(selection, fromWord, toWord, nameCodes, nameMatches);
+            }
+            if (planetMatches != null) {
+                filterCodes(selection, fromWord, toWord, planetCodes, planetMatches);
+            }
+            if (filter.getShipType() != null) {
+                filterEquals(selection, fromWord, toWord, shipTypes, (byte) filter.getShipType().ordinal());
+            }
+            if (filter.getAfter() != null || filter.getBefore() != null) {
+                filterRange(selection, fromWord, toWord, prodDays, firstDay, lastDay);
+            }
+            if (filter.getUsed() != null) {
+                boolean isUsed = filter.getUsed();
+                for (int w = fromWord; w < toWord; w++) {
+                    selection[w] &= isUsed ? used[w] : ~used[w];
+                }
+            }
+            if (filter.getMinSpeed() != null || filter.getMaxSpeed() != null) {
+                filterRange(selection, fromWord, toWord, speeds, min(filter.getMinSpeed()), max(filter.getMaxSpeed()));
+            }
+            if (filter.getMinCrewSize() != null || filter.getMaxCrewSize() != null) {
+                filterRange(selection, fromWord, toWord, crewSizes,
+                        filter.getMinCrewSize() == null ? Integer.MIN_VALUE : filter.getMinCrewSize(),
+                        filter.getMaxCrewSize() == null ? Integer.MAX_VALUE : filter.getMaxCrewSize());
+            }
+            if (filter.getMinRating() != null || filter.getMaxRating() != null) {
+                filterRange(selection, fromWord, toWord, ratings, min(filter.getMinRating()), max(filter.getMaxRating()));
+            }
+        }
+    }
+
+    private final class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Scan scan;
+        private final long[] selection;
+        private final int fromWord;
+        private final int toWord;
+
+        private CountTask(Scan scan, long[] selection, int fromWord, int toWord) {
+            this.scan = scan;
+            this.selection = selection;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected Long compute() {
+            if (toWord - fromWord <= chunkWords) {
+                return count(scan, selection, fromWord, toWord);
+            }
+            int middle = (fromWord + toWord) >>> 1;
+            CountTask left = new CountTask(scan, selection, fromWord, middle);
+            left.fork();
+            long right = new CountTask(scan, selection, middle, toWord).compute();
+            return left.join() + right;
+        }
+    }
+
+    private final class TopTask extends RecursiveTask<TopRows> {
+        private static final long serialVersionUID = 1L;
+
+        private final Scan scan;
+        private final SortKey sortKey;
+        private final After after;
+        private final int limit;
+        private final long[] selection;
+        private final int fromWord;
+        private final int toWord;
+
+        private TopTask(Scan scan, SortKey sortKey, After after, int limit, long[] selection,
+                        int fromWord, int toWord) {
+            this.scan = scan;
+            this.sortKey = sortKey;
+            this.after = after;
+            this.limit = limit;
+            this.selection = selection;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected TopRows compute() {
+            if (toWord - fromWord <= chunkWords) {
+                return top(scan, sortKey, after, limit, selection, fromWord, toWord);
+            }
+            int middle = (fromWord + toWord) >>> 1;
+            TopTask left = new TopTask(scan, sortKey, after, limit, selection, fromWord, middle);
+            left.fork();
+            TopRows right = new TopTask(scan, sortKey, after, limit, selection, middle, toWord).compute();
+            TopRows top = left.join();
+            top.addAll(right);
+            return top;
+        }
+    }
+
+    /**
+     * The position of a keyset cursor: the sort key and id of the last row of the previous page.
+     */
+    private static final class After {
+        private final double key;
+        private final long id;
+
+        private After(double key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    /**
+     * The first {@code limit} rows by sort key, ties by id, after the cursor if there is one,
+     * kept in a bounded max-heap, so a page costs O(n log k) instead of sorting every match.
+     */
+    private static final class TopRows {
+        private final int limit;
+        private final After after;
+        private int size;
+        private int[] rows;
+        private double[] keys;
+        private long[] ids;
+
+        private TopRows(int limit, After after) {
+            this.limit = limit;
+            this.after = after;
+            int capacity = Math.min(limit, 64);
+            this.rows = new int[capacity];
+            this.keys = new double[capacity];
+            this.ids = new long[capacity];
+        }
+
+        void offer(int row, double key, long id) {
+            if (after != null && compare(key, id, after.key, after.id) <= 0) {
+                return;
+            }
+            if (size < limit) {
+                if (size == rows.length) {
+                    int capacity = (int) Math.min(limit, size * 2L);
+                    rows = Arrays.copyOf(rows, capacity);
+                    keys = Arrays.copyOf(keys, capacity);
+                    ids = Arrays.copyOf(ids, capacity);
+                }
+                set(size, row, key, id);
+                siftUp(size++);
+            } else if (limit > 0 && compare(key, id, keys[0], ids[0]) < 0) {
+                set(0, row, key, id);
+                siftDown(0);
+            }
+        }
+
+        void addAll(TopRows other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.rows[i], other.keys[i], other.ids[i]);
+            }
+        }
+
+        /**
+         * The rows in ascending order. Sorts the heap in place, so it takes no more offers.
+         */
+        int[] sorted() {
+            int count = size;
+            for (int last = count - 1; last > 0; last--) {
+                swap(0, last);
+                size = last;
+                siftDown(0);
+            }
+            size = count;
+            return Arrays.copyOf(rows, count);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(keys[i], ids[i], keys[parent], ids[parent]) <= 0) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && compare(keys[left], ids[left], keys[largest], ids[largest]) > 0) {
+                    largest = left;
+                }
+                if (right < size && compare(keys[right], ids[right], keys[largest], ids[largest]) > 0) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void set(int i, int row, double key, long id) {
+            rows[i] = row;
+            keys[i] = key;
+            ids[i] = id;
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            double key = keys[a];
+            long id = ids[a];
+            set(a, rows[b], keys[b], ids[b]);
+            set(b, row, key, id);
+        }
+
+        private static int compare(double key, long id, double otherKey, long otherId) {
+            int result = Double.compare(key, otherKey);
+            return result != 0 ? result : Long.compare(id, otherId);
+        }
+    }
+
+    private static final class SortKey {
+        static final int ID = 0;
+        static final int SPEED = 1;
+        static final int PROD_DATE = 2;
+        static final int RATING = 3;
+
+        private final int column;
+        private final boolean ascending;
+
+        private SortKey(int column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        static SortKey of(Sort sort) {
+            Iterator<Sort.Order> orders = sort.iterator();
+            if (!orders.hasNext()) {
+                return new SortKey(ID, true);
+            }
+            Sort.Order order = orders.next();
+            // ties go by id anyway, so a trailing ascending id order changes nothing
+            if (orders.hasNext()) {
+                Sort.Order next = orders.next();
+                if (!"id".equals(next.getProperty()) || !next.isAscending() || orders.hasNext()) {
+                    return null;
+                }
+            }
+            switch (order.getProperty()) {
+                case "id":
+                    return new SortKey(ID, order.isAscending());
+                case "speed":
+                    return new SortKey(SPEED, order.isAscending());
+                case "prodDate":
+                    return new SortKey(PROD_DATE, order.isAscending());
+                case "rating":
+                    return new SortKey(RATING, order.isAscending());
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Distinct values of a text column by code. Substring matching ignores case and accents, like
+     * LIKE under the utf8_general_ci collation of the ship table.
+     * <p>
+     * Codes are counted by the rows that use them. A value no row uses any more is dropped and
+     * its code reused, so the dictionary grows with the distinct values in the store, not with
+     * every value ever written.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<String> normalized = new ArrayList<>();
+        private int[] references = new int[16];
+        private int[] freeCodes = new int[16];
+        private int freeCount;
+
+        int acquire(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (freeCount > 0) {
+                    code = freeCodes[--freeCount];
+                    values.set(code, value);
+                    normalized.set(code, NgramIndex.normalize(value));
+                } else {
+                    code = values.size();
+                    values.add(value);
+                    normalized.add(NgramIndex.normalize(value));
+                    if (code == references.length) {
+                        references = Arrays.copyOf(references, code * 2);
+                    }
+                }
+                codes.put(value, code);
+            }
+            references[code]++;
+            return code;
+        }
+
+        void release(int code) {
+            if (--references[code] > 0) {
+                return;
+            }
+            codes.remove(values.get(code));
+            values.set(code, null);
+            normalized.set(code, null);
+            if (freeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+            }
+            freeCodes[freeCount++] = code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        /**
+         * Whether each code matches {@code LIKE '%text%'}: in the text, {@code %} stands for any
+         * run of characters, {@code _} for any one character, and {@code \} escapes the next.
+         */
+        boolean[] matching(String text) {
+            String needle = NgramIndex.normalize(text);
+            Pattern pattern = needle.indexOf('%') >= 0 || needle.indexOf('_') >= 0 || needle.indexOf('\\') >= 0
+                    ? likePattern(needle)
+                    : null;
+            boolean[] matches = new boolean[normalized.size()];
+            for (int code = 0; code < matches.length; code++) {
+                String value = normalized.get(code);
+                matches[code] = value != null
+                        && (pattern == null ? value.contains(needle) : pattern.matcher(value).find());
+            }
+            return matches;
+        }
+
+        // the pattern is searched for, so the surrounding % of the LIKE need no translation
+        private static Pattern likePattern(String text) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\\' && i + 1 < text.length()) {
+                    regex.append(Pattern.quote(String.valueOf(text.charAt(++i))));
+                } else if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * The part of the database-backed {@link ShipService} built on JPA specifications. The
+ * controller uses the {@link ShipFilter} methods only, so other storages do without these.
+ */
+public interface ShipJpaService extends ShipService {
+
+    Page<Ship> getAllShips(Specification<Ship> shipSpecification, Pageable pageable);
+
+    Long getShipsCount(Specification<Ship> shipSpecification);
+
+    List<ShipView> getShipsSlice(Specification<Ship> shipSpecification, Sort sort, int limit);
+
+    Specification<Ship> filterShips(ShipFilter filter);
+
+    Specification<Ship> filterShipsByName(String name);
+
+    Specification<Ship> filterShipsByPlanet(String planet);
+
+    Specification<Ship> filterShipsByShipType(ShipType shipType);
+
+    Specification<Ship> filterShipsByDate(Long after, Long before);
+
+    Specification<Ship> filterShipsByUsage(Boolean isUsed);
+
+    Specification<Ship> filterShipsBySpeed(Double min, Double max);
+
+    Specification<Ship> filterShipsByCrewSize(Integer min, Integer max);
+
+    Specification<Ship> filterShipsByRating(Double min, Double max);
+
+    Specification<Ship> filterShipsAfter(String fieldName, Comparable<?> value, Long id);
+}
@@ -0,0 +1,238 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipView;
+import com.space.repository.ShipLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link ShipService} over a {@link ShipLog} instead of the database, for single-node installs
+ * with {@code ships.storage=log}. Lookups come from the log's ships in memory, list, count and
+ * export filters and keyset pages from a {@link ShipColumnStore} filled from the log at startup.
+ */
+@Service
+public class ShipLogService implements ShipService {
+
+    private static Logger log = getLogger(ShipLogService.class);
+
+    @Resource(name = "shipRules")
+    private ShipRules shipRules;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.storage:database}")
+    private String storage;
+
+    @Value("${ships.log.dir:cosmoport-log}")
+    private String directory;
+
+    @Value("${ships.log.regionBytes:16777216}")
+    private long regionBytes;
+
+    @Value("${ships.log.syncIntervalMs:100}")
+    private long syncIntervalMs;
+
+    @Value("${ships.log.snapshotIntervalSeconds:600}")
+    private long snapshotIntervalSeconds;
+
+    @Value("${ships.batch.maxSize:10000}")
+    private int batchMaxSize;
+
+    @Value("${ships.update.maxAttempts:3}")
+    private int updateMaxAttempts;
+
+    @Value("${ships.columnStore.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ships.columnStore.chunkRows:16384}")
+    private int chunkRows;
+
+    private ShipLog shipLog;
+
+    private ShipColumnStore columns;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        shipLog = ShipLog.open(Paths.get(directory), regionBytes, syncIntervalMs,
+                TimeUnit.SECONDS.toMillis(snapshotIntervalSeconds));
+        columns = new ShipColumnStore(ZoneId.systemDefault(),
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), chunkRows);
+        shipLog.ships().forEach(columns::put);
+        meterRegistry.gauge("ships.log.size", shipLog, ShipLog::size);
+        log.info("Ship log in " + Paths.get(directory).toAbsolutePath() + " contains " + shipLog.size() + " ships...");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (shipLog != null) {
+            shipLog.close();
+            columns.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return "log".equals(storage);
+    }
+
+    @Override
+    public Boolean isExists(Long id) {
+        return shipLog.get(id) != null;
+    }
+
+    @Override
+    public List<ShipView> getShips(ShipFilter filter, Pageable pageable) {
+        List<ShipView> ships = columns.findViews(filter, pageable);
+        if (ships == null) {
+            throw unsupported();
+        }
+        return ships;
+    }
+
+    @Override
+    public Long getShipsCount(ShipFilter filter) {
+        Long count = columns.count(filter);
+        if (count == null) {
+            throw unsupported();
+        }
+        return count;
+    }
+
+    @Override
+    public void exportShips(ShipFilter filter, Consumer<Ship> consumer) {
+        long[] ids = columns.findIds(filter);
+        if (ids == null) {
+            throw unsupported();
+        }
+        for (long id : ids) {
+            Ship ship = shipLog.get(id);
+            if (ship != null) {
+                consumer.accept(ship);
+            }
+        }
+    }
+
+    @Override
+    public List<ShipView> getShipsAfter(ShipFilter filter, Sort sort, Comparable<?> value, Long id, int limit) {
+        List<ShipView> ships = columns.findViewsAfter(filter, sort, value, id, limit);
+        if (ships == null) {
+            throw unsupported();
+        }
+        return ships;
+    }
+
+    @Override
+    public void addNewShip(Ship ship) {
+        shipRules.prepareNewShip(ship);
+
+        // the column store must see the writes in the order of the log
+        synchronized (shipLog) {
+            shipLog.insert(ship);
+            columns.put(ship);
+        }
+    }
+
+    @Override
+    public List<ShipBatchResult> addNewShips(List<Ship> ships) {
+        if (ships.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + batchMaxSize);
+        }
+
+        ShipBatchResult[] results = new ShipBatchResult[ships.size()];
+        List<Ship> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            try {
+                shipRules.prepareNewShip(ship);
+                // checked by the log for the whole batch otherwise
+                if (ship.getShipType() == null) {
+                    throw new IllegalArgumentException("The field 'shipType' must not be null");
+                }
+            } catch (RuntimeException e) {
+                results[i] = ShipBatchResult.failed(i, e.getMessage());
+                continue;
+            }
+            valid.add(ship);
+            validIndexes.add(i);
+        }
+
+        synchronized (shipLog) {
+            shipLog.insertAll(valid);
+            valid.forEach(columns::put);
+        }
+        for (int i = 0; i < valid.size(); i++) {
+            results[validIndexes.get(i)] = ShipBatchResult.created(validIndexes.get(i), valid.get(i).getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Ship findById(Long id) {
+        return shipLog.get(id);
+    }
+
+    /**
+     * Merges the non-null fields into the stored ship and replaces it, if no other update got
+     * there first; otherwise the merge starts over from the newer ship, up to
+     * {@code ships.update.maxAttempts} times, unless the caller asked for a specific version.
+     */
+    @Override
+    public Ship updateShip(Long id, Ship ship, Long expectedVersion) {
+        for (int attempt = 1; attempt <= updateMaxAttempts; attempt++) {
+            Ship current = shipLog.get(id);
+            if (current == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            }
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT);
+            }
+
+            Ship updateShip = shipRules.merge(current, ship);
+            synchronized (shipLog) {
+                if (shipLog.replace(updateShip, current.getVersion())) {
+                    columns.put(updateShip);
+                    return updateShip;
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT);
+    }
+
+    @Override
+    public void deleteShip(Long id) {
+        synchronized (shipLog) {
+            shipLog.delete(id);
+            columns.remove(id);
+        }
+    }
+
+    private static ResponseStatusException unsupported() {
+        return new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "Not supported with ships.storage=log");
+    }
+}
@@ -0,0 +1,27 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+
+import java.util.List;
+
+/**
+ * One page of ships together with the number of ships matching the filter.
+ */
+public class ShipPage {
+
+    private final List<ShipView> items;
+    private final Long total;
+
+    public ShipPage(List<ShipView> items, Long total) {
+        this.items = items;
+        this.total = total;
+    }
+
+    public List<ShipView> getItems() {
+        return items;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+}
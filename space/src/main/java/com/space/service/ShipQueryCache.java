@@ -0,0 +1,113 @@
+package com.space.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.space.repository.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches list and count results by filter. Every write bumps the generation, which is part
+ * of the key, so results computed before the write are never served again and age out
+ * through the weight bound. With replicas, nothing is cached for the read-your-writes window
+ * after a write, and reads pinned to the primary bypass the cache.
+ */
+@Component
+public class ShipQueryCache {
+
+    private static final int ENTRY_BYTES = 128;
+    private static final int SHIP_BYTES = 256;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.queryCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ships.queryCache.maxBytes:16777216}")
+    private long maxBytes;
+
+    @Value("${db.replicas.urls:}")
+    private String replicaUrls;
+
+    @Value("${db.replicas.readYourWritesMs:2000}")
+    private long readYourWritesMs;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private long replicaLagNanos;
+
+    private volatile long lastWrite;
+
+    private Cache<Key, Object> cache;
+
+    @PostConstruct
+    public void init() {
+        replicaLagNanos = replicaUrls.trim().isEmpty() ? 0 : TimeUnit.MILLISECONDS.toNanos(readYourWritesMs);
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, Object value) -> value instanceof Collection
+                        ? ENTRY_BYTES + ((Collection<?>) value).size() * SHIP_BYTES
+                        : ENTRY_BYTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ships.queries");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, ShipFilter filter, Object page, Supplier<T> loader) {
+        if (!enabled || ReplicaRoutingDataSource.isPinnedToPrimary()) {
+            return loader.get();
+        }
+        // a replica may not have the last write yet, and its answer would outlive the lag
+        if (System.nanoTime() - lastWrite < replicaLagNanos) {
+            return loader.get();
+        }
+        return (T) cache.get(new Key(generation.get(), kind, filter, page), key -> loader.get());
+    }
+
+    public void invalidate() {
+        lastWrite = System.nanoTime();
+        generation.incrementAndGet();
+    }
+
+    private static final class Key {
+        private final long generation;
+        private final String kind;
+        private final ShipFilter filter;
+        private final Object page;
+
+        private Key(long generation, String kind, ShipFilter filter, Object page) {
+            this.generation = generation;
+            this.kind = kind;
+            this.filter = filter;
+            this.page = page;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return generation == key.generation &&
+                    kind.equals(key.kind) &&
+                    filter.equals(key.filter) &&
+                    Objects.equals(page, key.page);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(generation, kind, filter, page);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JPQL for the list and count queries, built once per combination of present filters and sort
+ * order and reused with only the values bound. Hibernate caches the translation of every JPQL
+ * string, so a filter shape seen before skips building the Criteria tree and rendering SQL.
+ */
+public class ShipQueryPlans {
+
+    private static final String VIEW_SELECT = "select new com.space.model.ShipView(s.id, s.name, s.planet, " +
+            "s.shipType, s.prodDate, s.isUsed, s.speed, s.crewSize, s.rating) from Ship s";
+    private static final String COUNT_SELECT = "select count(s) from Ship s";
+
+    private static final int NAME_LIKE = 1;
+    private static final int NAME_IDS = 1 << 1;
+    private static final int PLANET_LIKE = 1 << 2;
+    private static final int PLANET_IDS = 1 << 3;
+    private static final int SHIP_TYPE = 1 << 4;
+    private static final int AFTER = 1 << 5;
+    private static final int BEFORE = 1 << 6;
+    private static final int IS_USED = 1 << 7;
+    private static final int MIN_SPEED = 1 << 8;
+    private static final int MAX_SPEED = 1 << 9;
+    private static final int MIN_CREW_SIZE = 1 << 10;
+    private static final int MAX_CREW_SIZE = 1 << 11;
+    private static final int MIN_RATING = 1 << 12;
+    private static final int MAX_RATING = 1 << 13;
+
+    private static final String[] CONDITIONS = {
+            "s.name like :name",
+            "s.id in :nameIds",
+            "s.planet like :planet",
+            "s.id in :planetIds",
+            "s.shipType = :shipType",
+            "s.prodDate >= :after",
+            "s.prodDate <= :before",
+            "s.isUsed = :isUsed",
+            "s.speed >= :minSpeed",
+            "s.speed <= :maxSpeed",
+            "s.crewSize >= :minCrewSize",
+            "s.crewSize <= :maxCrewSize",
+            "s.rating >= :minRating",
+            "s.rating <= :maxRating"
+    };
+
+    private final ShipRepository shipRepository;
+    private final ShipTextSearch textSearch;
+
+    // a null sort is the count query of the mask
+    private final ConcurrentMap<PlanKey, String> plans = new ConcurrentHashMap<>();
+
+    public ShipQueryPlans(ShipRepository shipRepository, ShipTextSearch textSearch) {
+        this.shipRepository = shipRepository;
+        this.textSearch = textSearch;
+    }
+
+    public List<ShipView> findViews(ShipFilter filter, Pageable pageable) {
+        Plan plan = plan(filter, pageable.getSort());
+        if (plan == null) {
+            return Collections.emptyList();
+        }
+        return shipRepository.findViews(plan.getJpql(), plan.getParameters(),
+                pageable.getOffset(), pageable.getPageSize());
+    }
+
+    public long count(ShipFilter filter) {
+        Plan plan = plan(filter, null);
+        return plan == null ? 0 : shipRepository.countShips(plan.getJpql(), plan.getParameters());
+    }
+
+    /**
+     * The query for the filter with its parameters, the list query if {@code sort} is given
+     * and the count query otherwise. Null if a text filter already rules out every ship.
+     */
+    public Plan plan(ShipFilter filter, Sort sort) {
+        Map<String, Object> parameters = new HashMap<>();
+        int mask = 0;
+
+        Set<Long> nameIds = textSearch.findIds("name", filter.getName());
+        if (nameIds != null) {
+            if (nameIds.isEmpty()) {
+                return null;
+            }
+            mask |= bind(parameters, NAME_IDS, "nameIds", nameIds);
+        } else {
+            mask |= bind(parameters, NAME_LIKE, "name", like(filter.getName()));
+        }
+
+        Set<Long> planetIds = textSearch.findIds("planet", filter.getPlanet());
+        if (planetIds != null) {
+            if (planetIds.isEmpty()) {
+                return null;
+            }
+            mask |= bind(parameters, PLANET_IDS, "planetIds", planetIds);
+        } else {
+            mask |= bind(parameters, PLANET_LIKE, "planet", like(filter.getPlanet()));
+        }
+
+        mask |= bind(parameters, SHIP_TYPE, "shipType", filter.getShipType());
+        mask |= bind(parameters, AFTER, "after", filter.getAfter() == null ? null : new Date(filter.getAfter()));
+        mask |= bind(parameters, BEFORE, "before", filter.getBefore() == null ? null : new Date(filter.getBefore()));
+        mask |= bind(parameters, IS_USED, "isUsed", filter.getUsed());
+        mask |= bind(parameters, MIN_SPEED, "minSpeed", filter.getMinSpeed());
+        mask |= bind(parameters, MAX_SPEED, "maxSpeed", filter.getMaxSpeed());
+        mask |= bind(parameters, MIN_CREW_SIZE, "minCrewSize", filter.getMinCrewSize());
+        mask |= bind(parameters, MAX_CREW_SIZE, "maxCrewSize", filter.getMaxCrewSize());
+        mask |= bind(parameters, MIN_RATING, "minRating", filter.getMinRating());
+        mask |= bind(parameters, MAX_RATING, "maxRating", filter.getMaxRating());
+
+        String jpql = plans.computeIfAbsent(new PlanKey(mask, sort), ShipQueryPlans::jpql);
+        return new Plan(jpql, parameters);
+    }
+
+    int size() {
+        return plans.size();
+    }
+
+    private static int bind(Map<String, Object> parameters, int bit, String name, Object value) {
+        if (value == null) {
+            return 0;
+        }
+        parameters.put(name, value);
+        return bit;
+    }
+
+    private static String like(String text) {
+        return text == null ? null : "%" + text + "%";
+    }
+
+    private static String jpql(PlanKey key) {
+        StringBuilder jpql = new StringBuilder(key.sort == null ? COUNT_SELECT : VIEW_SELECT);
+
+        String separator = " where ";
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            if ((key.mask & (1 << i)) != 0) {
+                jpql.append(separator).append(CONDITIONS[i]);
+                separator = " and ";
+            }
+        }
+
+        if (key.sort != null && key.sort.isSorted()) {
+            separator = " order by ";
+            for (Sort.Order order : key.sort) {
+                jpql.append(separator).append("s.").append(order.getProperty())
+                        .append(order.isAscending() ? " asc" : " desc");
+                separator = ", ";
+            }
+        }
+        return jpql.toString();
+    }
+
+    public static class Plan {
+        private final String jpql;
+        private final Map<String, Object> parameters;
+
+        private Plan(String jpql, Map<String, Object> parameters) {
+            this.jpql = jpql;
+            this.parameters = parameters;
+        }
+
+        public String getJpql() {
+            return jpql;
+        }
+
+        public Map<String, Object> getParameters() {
+            return parameters;
+        }
+    }
+
+    private static final class PlanKey {
+        private final int mask;
+        private final Sort sort;
+
+        private PlanKey(int mask, Sort sort) {
+            this.mask = mask;
+            this.sort = sort;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PlanKey planKey = (PlanKey) o;
+            return mask == planKey.mask &&
+                    Objects.equals(sort, planKey.sort);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mask, sort);
+        }
+    }
+}
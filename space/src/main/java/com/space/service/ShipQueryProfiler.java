@@ -0,0 +1,235 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Profiles list and count queries by SQL shape: the SQL Hibernate generates for a combination
+ * of filters and order with every value stripped, so requests that differ only in their values
+ * add up in one entry.
+ * <p>
+ * While a query is profiled, Hibernate hands its statements to {@link SqlListener} on the same
+ * thread, which keeps the SQL and the time the database spent executing it. The remainder of the
+ * call is reading rows and building results. Queries slower than {@code ships.profiler.slowQueryMs}
+ * are logged with their shape.
+ */
+@Component
+public class ShipQueryProfiler {
+
+    private static Logger log = getLogger(ShipQueryProfiler.class);
+
+    static final String OTHER_SHAPES = "(other shapes)";
+
+    private static final ThreadLocal<Execution> EXECUTION = new ThreadLocal<>();
+
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?");
+    private static final Pattern PLACEHOLDERS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.profiler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ships.profiler.slowQueryMs:200}")
+    private long slowQueryMs;
+
+    @Value("${ships.profiler.maxShapes:1000}")
+    private int maxShapes;
+
+    // by normalized SQL; the raw SQL differs from it only in the length of id lists
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> normalized = new ConcurrentHashMap<>();
+
+    /**
+     * Lets Hibernate report statements to the profiler; call on the JPA properties of every
+     * entity manager factory whose queries are profiled.
+     */
+    public static void register(Properties properties) {
+        properties.setProperty(AvailableSettings.STATEMENT_INSPECTOR, SqlListener.class.getName());
+        properties.setProperty(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlListener.class.getName());
+    }
+
+    public List<ShipView> profileList(String kind, Supplier<List<ShipView>> query) {
+        return profile(kind, query, List::size);
+    }
+
+    public Long profileCount(Supplier<Long> query) {
+        return profile("count", query, count -> 1);
+    }
+
+    /**
+     * Shapes ordered slowest first by {@code order}, at most {@code limit} of them.
+     */
+    public List<ShipQueryShape> top(ShipQueryShape.Order order, int limit) {
+        return shapes.values().stream()
+                .map(Shape::snapshot)
+                .sorted(order.getComparator())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    private <T> T profile(String kind, Supplier<T> query, ToLongFunction<T> returned) {
+        if (!enabled || EXECUTION.get() != null) {
+            return query.get();
+        }
+
+        Execution execution = new Execution();
+        EXECUTION.set(execution);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = query.get();
+        } finally {
+            EXECUTION.remove();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // answered without a statement, e.g. a text index ruled out every ship
+        if (execution.sql != null) {
+            record(kind, execution, elapsed, returned.applyAsLong(result));
+        }
+        return result;
+    }
+
+    private void record(String kind, Execution execution, long elapsed, long rowsReturned) {
+        String raw = execution.sql.toString();
+        String sql = normalized.get(raw);
+        if (sql == null) {
+            sql = normalize(raw);
+            if (normalized.size() < maxShapes) {
+                normalized.put(raw, sql);
+            }
+        }
+
+        Shape shape = shapes.get(sql);
+        if (shape == null) {
+            String key = shapes.size() < maxShapes ? sql : OTHER_SHAPES;
+            shape = shapes.computeIfAbsent(key, k -> new Shape(kind, k));
+        }
+        shape.add(elapsed, execution.databaseNanos, rowsReturned);
+
+        if (elapsed >= TimeUnit.MILLISECONDS.toNanos(slowQueryMs)) {
+            meterRegistry.counter("ships.query.slow", "kind", kind).increment();
+            log.warn("Slow " + kind + " query: " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms, database "
+                    + TimeUnit.NANOSECONDS.toMillis(execution.databaseNanos) + " ms, " + rowsReturned
+                    + " rows returned: " + sql);
+        }
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDERS.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * Statements and execution time of the query being profiled on this thread.
+     */
+    private static final class Execution {
+        private StringBuilder sql;
+        private long executeStart;
+        private long databaseNanos;
+
+        private void addSql(String statement) {
+            if (sql == null) {
+                sql = new StringBuilder(statement);
+            } else {
+                sql.append("; ").append(statement);
+            }
+        }
+    }
+
+    private static final class Shape {
+        private final String kind;
+        private final String sql;
+        private long executions;
+        private long totalNanos;
+        private long maxNanos;
+        private long databaseNanos;
+        private long rowsReturned;
+
+        private Shape(String kind, String sql) {
+            this.kind = kind;
+            this.sql = sql;
+        }
+
+        private synchronized void add(long elapsed, long database, long returned) {
+            executions++;
+            totalNanos += elapsed;
+            maxNanos = Math.max(maxNanos, elapsed);
+            databaseNanos += database;
+            rowsReturned += returned;
+        }
+
+        private synchronized ShipQueryShape snapshot() {
+            return new ShipQueryShape(kind, sql, executions, millis(totalNanos), millis(maxNanos),
+                    millis(databaseNanos), rowsReturned);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Registered with Hibernate by {@link #register}, once as the statement inspector of the
+     * session factory and once per session as an event listener. Both only act on the thread
+     * of a profiled query.
+     */
+    public static class SqlListener extends BaseSessionEventListener implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String inspect(String sql) {
+            Execution execution = EXECUTION.get();
+            if (execution != null) {
+                execution.addSql(sql);
+            }
+            return sql;
+        }
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            Execution execution = EXECUTION.get();
+            if (execution != null) {
+                execution.executeStart = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            Execution execution = EXECUTION.get();
+            if (execution != null) {
+                execution.databaseNanos += System.nanoTime() - execution.executeStart;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.space.service;
+
+import java.util.Comparator;
+
+/**
+ * Totals of one SQL shape recorded by {@link ShipQueryProfiler}.
+ */
+public class ShipQueryShape {
+
+    public enum Order {
+        TOTAL(Comparator.comparingDouble(ShipQueryShape::getTotalMs)),
+        MEAN(Comparator.comparingDouble(ShipQueryShape::getMeanMs)),
+        MAX(Comparator.comparingDouble(ShipQueryShape::getMaxMs));
+
+        private final Comparator<ShipQueryShape> slowestFirst;
+
+        Order(Comparator<ShipQueryShape> fastestFirst) {
+            this.slowestFirst = fastestFirst.reversed();
+        }
+
+        public Comparator<ShipQueryShape> getComparator() {
+            return slowestFirst;
+        }
+    }
+
+    private final String kind;
+    private final String sql;
+    private final long executions;
+    private final double totalMs;
+    private final double maxMs;
+    private final double databaseMs;
+    private final long rowsReturned;
+
+    ShipQueryShape(String kind, String sql, long executions, double totalMs, double maxMs, double databaseMs,
+                   long rowsReturned) {
+        this.kind = kind;
+        this.sql = sql;
+        this.executions = executions;
+        this.totalMs = totalMs;
+        this.maxMs = maxMs;
+        this.databaseMs = databaseMs;
+        this.rowsReturned = rowsReturned;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * The generated SQL with every value replaced by a placeholder.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public double getMeanMs() {
+        return totalMs / executions;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    /**
+     * Time the database spent executing the statements.
+     */
+    public double getDatabaseMs() {
+        return databaseMs;
+    }
+
+    /**
+     * The rest of the total: reading the rows and building the results from them.
+     */
+    public double getHydrationMs() {
+        return totalMs - databaseMs;
+    }
+
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+}
@@ -0,0 +1,326 @@
+package com.space.service;
+
+import com.space.repository.ShipJdbcRepository;
+import com.space.repository.ShipRatingChunk;
+import com.space.repository.ShipRerateCheckpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Recomputes the stored rating of every ship, e.g. after the rating formula changed.
+ * <p>
+ * One thread reads the fleet in id order, chunk by chunk, and hands the chunks to a pool of
+ * workers that rate them and write the changed ratings back as one batched UPDATE per chunk.
+ * The checkpoint only moves past a chunk once it and every chunk before it are written, so a
+ * stopped or failed run resumes without skipping ships. Reading is paced to
+ * {@code ships.rerate.maxRowsPerSecond} and at most one chunk per worker is in flight, which
+ * bounds the connections and load the job takes from online requests.
+ */
+@Component
+public class ShipRerateJob {
+
+    private static Logger log = getLogger(ShipRerateJob.class);
+
+    private static final long PROGRESS_LOG_INTERVAL_MS = 10000;
+
+    @Resource(name = "shipJdbcRepository")
+    private ShipJdbcRepository shipJdbcRepository;
+
+    @Resource(name = "ratingEngine")
+    private RatingEngine ratingEngine;
+
+    @Resource(name = "shipCache")
+    private ShipCache shipCache;
+
+    @Resource(name = "shipQueryCache")
+    private ShipQueryCache shipQueryCache;
+
+    @Resource(name = "shipColumnStore")
+    private ShipColumnStore shipColumnStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.rerate.chunkSize:1000}")
+    private int chunkSize;
+
+    @Value("${ships.rerate.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ships.rerate.maxRowsPerSecond:20000}")
+    private int maxRowsPerSecond;
+
+    private Counter processedCounter;
+    private Counter updatedCounter;
+
+    private ShipRerateStatus.State state = ShipRerateStatus.State.IDLE;
+    private Thread runner;
+    private String error;
+    private long startedAt;
+    private long finishedAt;
+    private long total;
+    private ShipRerateCheckpoint resumedFrom = new ShipRerateCheckpoint(0, 0, 0);
+
+    private volatile boolean stopRequested;
+    private volatile RuntimeException failure;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+
+    // chunks written out of order wait here, by sequence number, until the ones before them are written
+    private final Map<Long, ShipRerateCheckpoint> written = new HashMap<>();
+    private ShipRerateCheckpoint checkpoint = resumedFrom;
+    private long nextSequence;
+    private long lastProgressLog;
+
+    @PostConstruct
+    public void init() {
+        processedCounter = meterRegistry.counter("ships.rerate.processed");
+        updatedCounter = meterRegistry.counter("ships.rerate.updated");
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            stop();
+            current = runner;
+        }
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /**
+     * Starts a run in the background, from the saved checkpoint unless {@code restart} is set.
+     *
+     * @return false if a run is already in progress
+     */
+    public synchronized boolean start(boolean restart) {
+        if (state == ShipRerateStatus.State.RUNNING || state == ShipRerateStatus.State.STOPPING) {
+            return false;
+        }
+
+        state = ShipRerateStatus.State.RUNNING;
+        error = null;
+        failure = null;
+        stopRequested = false;
+        startedAt = System.currentTimeMillis();
+        finishedAt = 0;
+        total = 0;
+        resumedFrom = new ShipRerateCheckpoint(0, 0, 0);
+        checkpoint = resumedFrom;
+        written.clear();
+        nextSequence = 0;
+        lastProgressLog = startedAt;
+        processed.set(0);
+        updated.set(0);
+
+        runner = new Thread(() -> run(restart), "ship-rerate");
+        runner.setDaemon(true);
+        runner.start();
+        return true;
+    }
+
+    /**
+     * Asks a running job to stop once the chunks in flight are written. The checkpoint is kept.
+     */
+    public synchronized void stop() {
+        if (state == ShipRerateStatus.State.RUNNING) {
+            stopRequested = true;
+            state = ShipRerateStatus.State.STOPPING;
+        }
+    }
+
+    public synchronized ShipRerateStatus getStatus() {
+        long elapsedMs = startedAt == 0 ? 0 : (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+        double rowsPerSecond = elapsedMs == 0 ? 0 : Math.round(processed.get() * 10000.0 / elapsedMs) / 10.0;
+        return new ShipRerateStatus(state, checkpoint.getLastId(),
+                resumedFrom.getProcessed() + processed.get(), resumedFrom.getUpdated() + updated.get(),
+                total, elapsedMs, rowsPerSecond, error);
+    }
+
+    private void run(boolean restart) {
+        try {
+            ShipRerateCheckpoint start = new ShipRerateCheckpoint(0, 0, 0);
+            if (restart) {
+                shipJdbcRepository.deleteRerateCheckpoint();
+            } else {
+                start = shipJdbcRepository.findRerateCheckpoint().orElse(start);
+            }
+            long remaining = shipJdbcRepository.countAfter(start.getLastId());
+            synchronized (this) {
+                resumedFrom = start;
+                checkpoint = start;
+                total = start.getProcessed() + remaining;
+            }
+
+            log.info("Re-rating " + remaining + " ships after id " + start.getLastId() + "...");
+            readChunks(start.getLastId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IllegalStateException("Re-rating was interrupted", e);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        finish();
+    }
+
+    private void readChunks(long afterId) throws InterruptedException {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "ship-rerate-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(workers);
+        long startNanos = System.nanoTime();
+        long read = 0;
+
+        try {
+            for (long sequence = 0; !stopRequested && failure == null; sequence++) {
+                inFlight.acquire();
+                ShipRatingChunk chunk = new ShipRatingChunk(chunkSize);
+                if (shipJdbcRepository.findRatingInputs(afterId, chunk) == 0) {
+                    inFlight.release();
+                    break;
+                }
+                afterId = chunk.lastId();
+
+                long chunkSequence = sequence;
+                executor.execute(() -> {
+                    try {
+                        written(chunkSequence, chunk, rerate(chunk));
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+
+                read += chunk.size();
+                throttle(read, startNanos);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private int rerate(ShipRatingChunk chunk) {
+        int size = chunk.size();
+        double[] ratings = new double[size];
+        ratingEngine.calculateRatings(chunk.getProdDates(), chunk.getSpeeds(), chunk.getUsed(), ratings, size);
+
+        int[] changed = new int[size];
+        int changedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (Double.compare(ratings[i], chunk.getRatings()[i]) != 0) {
+                changed[changedCount++] = i;
+            }
+        }
+
+        int rows = 0;
+        if (changedCount > 0) {
+            int count = changedCount;
+            boolean[] written = new TransactionTemplate(transactionManager).execute(status ->
+                    shipJdbcRepository.updateRatings(chunk, changed, ratings, count));
+            for (int i = 0; i < count; i++) {
+                if (!written[i]) {
+                    continue;
+                }
+                int index = changed[i];
+                shipCache.invalidate(chunk.getIds()[index]);
+                shipColumnStore.onRatingUpdated(chunk.getIds()[index], chunk.getVersions()[index], ratings[index]);
+                rows++;
+            }
+            shipQueryCache.invalidate();
+        }
+
+        processed.addAndGet(size);
+        updated.addAndGet(rows);
+        processedCounter.increment(size);
+        updatedCounter.increment(rows);
+        return rows;
+    }
+
+    private synchronized void written(long sequence, ShipRatingChunk chunk, int rows) {
+        written.put(sequence, new ShipRerateCheckpoint(chunk.lastId(), chunk.size(), rows));
+
+        ShipRerateCheckpoint next = checkpoint;
+        while (written.containsKey(nextSequence)) {
+            ShipRerateCheckpoint done = written.remove(nextSequence++);
+            next = new ShipRerateCheckpoint(done.getLastId(), next.getProcessed() + done.getProcessed(),
+                    next.getUpdated() + done.getUpdated());
+        }
+        if (next != checkpoint) {
+            shipJdbcRepository.saveRerateCheckpoint(next);
+            checkpoint = next;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastProgressLog >= PROGRESS_LOG_INTERVAL_MS) {
+            lastProgressLog = now;
+            ShipRerateStatus status = getStatus();
+            log.info("Re-rated " + status.getProcessed() + " of " + status.getTotal() + " ships, "
+                    + status.getUpdated() + " changed, " + status.getRowsPerSecond() + " ships/s...");
+        }
+    }
+
+    private void throttle(long read, long startNanos) throws InterruptedException {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long aheadMs = read * 1000 / maxRowsPerSecond - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (aheadMs > 0) {
+            Thread.sleep(aheadMs);
+        }
+    }
+
+    private synchronized void finish() {
+        finishedAt = System.currentTimeMillis();
+        if (failure == null && !stopRequested) {
+            try {
+                shipJdbcRepository.deleteRerateCheckpoint();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            state = ShipRerateStatus.State.FAILED;
+            error = failure.getMessage();
+            log.error("Re-rating failed after id " + checkpoint.getLastId(), failure);
+        } else if (stopRequested) {
+            state = ShipRerateStatus.State.STOPPED;
+            log.info("Re-rating stopped after id " + checkpoint.getLastId() + "...");
+        } else {
+            state = ShipRerateStatus.State.DONE;
+            ShipRerateStatus status = getStatus();
+            log.info("Re-rated " + status.getProcessed() + " ships, " + status.getUpdated() + " changed, in "
+                    + status.getElapsedMs() + " ms (" + status.getRowsPerSecond() + " ships/s)");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.space.service;
+
+public class ShipRerateStatus {
+
+    public enum State {
+        IDLE, RUNNING, STOPPING, STOPPED, DONE, FAILED
+    }
+
+    private final State state;
+    private final long lastId;
+    private final long processed;
+    private final long updated;
+    private final long total;
+    private final long elapsedMs;
+    private final double rowsPerSecond;
+    private final String error;
+
+    ShipRerateStatus(State state, long lastId, long processed, long updated, long total, long elapsedMs,
+                     double rowsPerSecond, String error) {
+        this.state = state;
+        this.lastId = lastId;
+        this.processed = processed;
+        this.updated = updated;
+        this.total = total;
+        this.elapsedMs = elapsedMs;
+        this.rowsPerSecond = rowsPerSecond;
+        this.error = error;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Every ship with an id up to this one has been re-rated.
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
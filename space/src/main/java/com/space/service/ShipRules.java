@@ -0,0 +1,84 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.Resource;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Validation and rating of new and changed ships, whichever storage keeps them.
+ */
+@Component
+public class ShipRules {
+
+    @Resource(name = "ratingEngine")
+    private RatingEngine ratingEngine;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    public void prepareNewShip(Ship ship) {
+        if (ship.getUsed() == null) {
+            ship.setUsed(false);
+        }
+
+        Set<ConstraintViolation<Ship>> violations = validator.validate(ship);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        ship.setProdDate(validateProdDate(ship.getProdDate()));
+
+        Double rating = calculateRating(ship);
+        ship.setRating(rating);
+    }
+
+    /**
+     * The current ship with the non-null fields of {@code ship} applied, validated and rated,
+     * at the next version.
+     */
+    public Ship merge(Ship current, Ship ship) {
+        Ship updateShip = new Ship();
+        updateShip.setId(current.getId());
+        updateShip.setName(ship.getName() != null ? ship.getName() : current.getName());
+        updateShip.setPlanet(ship.getPlanet() != null ? ship.getPlanet() : current.getPlanet());
+        updateShip.setShipType(ship.getShipType() != null ? ship.getShipType() : current.getShipType());
+        updateShip.setProdDate(ship.getProdDate() != null
+                ? validateProdDate(ship.getProdDate()) : current.getProdDate());
+        updateShip.setUsed(ship.getUsed() != null ? ship.getUsed() : current.getUsed());
+        updateShip.setSpeed(ship.getSpeed() != null ? ship.getSpeed() : current.getSpeed());
+        updateShip.setCrewSize(ship.getCrewSize() != null ? ship.getCrewSize() : current.getCrewSize());
+        updateShip.setVersion(current.getVersion() + 1);
+
+        Set<ConstraintViolation<Ship>> violations = validator.validate(updateShip);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        updateShip.setRating(calculateRating(updateShip));
+        return updateShip;
+    }
+
+    // prodDate is a DATE column, so the ship keeps only the day, as the row does, and a cached
+    // copy reads the same as the row
+    private Date validateProdDate(Date date) {
+        if (!ratingEngine.isValidProdDate(date.getTime())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Date...");
+        } else {
+            ZoneId zone = ZoneId.systemDefault();
+            return Date.from(date.toInstant().atZone(zone).toLocalDate().atStartOfDay(zone).toInstant());
+        }
+    }
+
+    private Double calculateRating(Ship ship) {
+        return ratingEngine.calculateRating(ship.getProdDate().getTime(), ship.getSpeed(), ship.getUsed());
+    }
+}
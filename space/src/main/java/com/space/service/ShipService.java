@@ -1,39 +1,43 @@
 package com.space.service;
 
 import com.space.model.Ship;
-import com.space.model.ShipType;
-import org.springframework.data.domain.Page;
+import com.space.model.ShipView;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 
 public interface ShipService {
 
     Boolean isExists(Long id);
 
-    Page<Ship> getAllShips(Specification<Ship> shipSpecification, Pageable pageable);
-
-    void addNewShip(Ship ship) throws Exception;
-
-    Ship findById(Long id);
+    List<ShipView> getShips(ShipFilter filter, Pageable pageable);
 
-    Ship updateShip(Long id, Ship ship);
+    Long getShipsCount(ShipFilter filter);
 
-    void deleteShip(Long id);
+    void exportShips(ShipFilter filter, Consumer<Ship> consumer);
 
-    Specification<Ship> filterShipsByName(String name);
+    /**
+     * A keyset page: the first {@code limit} ships matching the filter that come after the ship
+     * with sort value {@code value} and id {@code id} in the order of {@code sort}.
+     *
+     * @param value the value of the first sort field on the last ship of the previous page,
+     *              or null for the first page
+     */
+    List<ShipView> getShipsAfter(ShipFilter filter, Sort sort, Comparable<?> value, Long id, int limit);
 
-    Specification<Ship> filterShipsByPlanet(String planet);
-
-    Specification<Ship> filterShipsByShipType(ShipType shipType);
-
-    Specification<Ship> filterShipsByDate(Long after, Long before);
+    void addNewShip(Ship ship) throws Exception;
 
-    Specification<Ship> filterShipsByUsage(Boolean isUsed);
+    List<ShipBatchResult> addNewShips(List<Ship> ships);
 
-    Specification<Ship> filterShipsBySpeed(Double min, Double max);
+    Ship findById(Long id);
 
-    Specification<Ship> filterShipsByCrewSize(Integer min, Integer max);
+    /**
+     * @param expectedVersion the version the caller last read, or null to update whatever is current
+     */
+    Ship updateShip(Long id, Ship ship, Long expectedVersion);
 
-    Specification<Ship> filterShipsByRating(Double min, Double max);
+    void deleteShip(Long id);
 }
\ No newline at end of file
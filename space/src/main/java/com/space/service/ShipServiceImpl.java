@@ -2,29 +2,119 @@ package com.space.service;
 
 import com.space.model.Ship;
 import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ReplicaRoutingDataSource;
+import com.space.repository.ShipJdbcRepository;
 import com.space.repository.ShipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.util.Calendar;
+import javax.persistence.criteria.Path;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.GregorianCalendar;
-
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Primary
 @Service
-public class ShipServiceImpl implements ShipService {
+public class ShipServiceImpl implements ShipJpaService {
+
+    private static final int WRITE_LOCKS = 64;
 
     @Resource(name = "shipRepository")
     private ShipRepository shipRepository;
 
+    @Resource(name = "shipJdbcRepository")
+    private ShipJdbcRepository shipJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Resource(name = "shipRules")
+    private ShipRules shipRules;
+
+    @Resource(name = "shipCache")
+    private ShipCache shipCache;
+
+    @Resource(name = "shipQueryCache")
+    private ShipQueryCache shipQueryCache;
+
+    @Resource(name = "shipColumnStore")
+    private ShipColumnStore shipColumnStore;
+
+    @Resource(name = "shipQueryProfiler")
+    private ShipQueryProfiler shipQueryProfiler;
+
+    @Autowired
+    private Map<String, ShipTextSearch> textSearches;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ships.search.strategy:like}")
+    private String searchStrategy;
+
+    @Value("${ships.queryPlans.enabled:true}")
+    private boolean queryPlansEnabled;
+
+    @Value("${ships.export.fetchSize:1000}")
+    private int exportFetchSize;
+
+    @Value("${ships.batch.chunkSize:500}")
+    private int batchChunkSize;
+
+    @Value("${ships.batch.maxSize:10000}")
+    private int batchMaxSize;
+
+    @Value("${ships.update.maxAttempts:3}")
+    private int updateMaxAttempts;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    // the writes of one ship reach the caches and indexes in the order they reached the table
+    private final Object[] writeLocks = Stream.generate(Object::new).limit(WRITE_LOCKS).toArray();
+
+    private ShipTextSearch textSearch;
+
+    private ShipQueryPlans queryPlans;
+
+    @PostConstruct
+    public void init() {
+        textSearch = textSearches.get(searchStrategy + "TextSearch");
+        if (textSearch == null) {
+            throw new IllegalStateException("Unknown ships.search.strategy: " + searchStrategy);
+        }
+        textSearch.rebuild();
+        queryPlans = new ShipQueryPlans(shipRepository, textSearch);
+    }
+
     @Override
     public Boolean isExists(Long id) {
-        return shipRepository.existsById(id);
+        return shipCache.get(id).isPresent();
     }
 
     @Override
@@ -33,87 +123,238 @@ public class ShipServiceImpl implements ShipService {
     }
 
     @Override
-    public void addNewShip(Ship ship) {
-
-        if (ship.getUsed() == null) {
-            ship.setUsed(false);
+    public List<ShipView> getShips(ShipFilter filter, Pageable pageable) {
+        if (shipColumnStore.isEnabled()) {
+            List<ShipView> ships = measureCpu("list", "columns", () -> shipColumnStore.findViews(filter, pageable));
+            if (ships != null) {
+                return ships;
+            }
         }
+        return shipQueryCache.get("list", filter, pageable, () -> measureCpu("list", queryPath(),
+                () -> shipQueryProfiler.profileList("list", () -> queryPlansEnabled
+                        ? queryPlans.findViews(filter, pageable)
+                        : shipRepository.findViews(filterShips(filter), pageable.getSort(), pageable.getOffset(),
+                        pageable.getPageSize()))));
+    }
 
-        validateProdDate(ship.getProdDate());
+    @Override
+    public Long getShipsCount(Specification<Ship> shipSpecification) {
+        return shipRepository.count(shipSpecification);
+    }
 
-        Double rating = calculateRating(ship);
-        ship.setRating(rating);
+    @Override
+    public Long getShipsCount(ShipFilter filter) {
+        if (shipColumnStore.isEnabled()) {
+            Long count = measureCpu("count", "columns", () -> shipColumnStore.count(filter));
+            if (count != null) {
+                return count;
+            }
+        }
+        return shipQueryCache.get("count", filter, null, () -> measureCpu("count", queryPath(),
+                () -> shipQueryProfiler.profileCount(() -> queryPlansEnabled
+                        ? queryPlans.count(filter)
+                        : getShipsCount(filterShips(filter)))));
+    }
 
-        shipRepository.save(ship);
+    @Override
+    public List<ShipView> getShipsSlice(Specification<Ship> shipSpecification, Sort sort, int limit) {
+        return shipQueryProfiler.profileList("cursor",
+                () -> shipRepository.findViews(shipSpecification, sort, 0, limit));
     }
 
     @Override
-    public Ship findById(Long id) {
-        if (shipRepository.findById(id).isPresent()) {
-            return shipRepository.findById(id).get();
+    public List<ShipView> getShipsAfter(ShipFilter filter, Sort sort, Comparable<?> value, Long id, int limit) {
+        if (shipColumnStore.isEnabled()) {
+            List<ShipView> ships = measureCpu("cursor", "columns",
+                    () -> shipColumnStore.findViewsAfter(filter, sort, value, id, limit));
+            if (ships != null) {
+                return ships;
+            }
         }
-        return null;
+        String fieldName = sort.iterator().next().getProperty();
+        return getShipsSlice(filterShips(filter).and(filterShipsAfter(fieldName, value, id)), sort, limit);
     }
 
     @Override
-    public Ship updateShip(Long id, Ship ship) {
+    public void exportShips(ShipFilter filter, Consumer<Ship> consumer) {
+        shipRepository.forEach(filterShips(filter), Sort.by("id"), exportFetchSize, consumer);
+    }
 
-        Ship updateShip = new Ship();
+    @Override
+    public void addNewShip(Ship ship) {
 
-        if (shipRepository.findById(id).isPresent()) {
-            updateShip = shipRepository.findById(id).get();
-        }
+        shipRules.prepareNewShip(ship);
 
-        if (ship.getName() != null) {
-            updateShip.setName(ship.getName());
+        shipRepository.save(ship);
+        synchronized (writeLock(ship.getId())) {
+            shipCache.put(ship);
+            shipQueryCache.invalidate();
+            textSearch.onSave(ship);
+            shipColumnStore.onSave(ship);
         }
+    }
 
-        if (ship.getPlanet() != null) {
-            updateShip.setPlanet(ship.getPlanet());
+    @Override
+    public List<ShipBatchResult> addNewShips(List<Ship> ships) {
+        if (ships.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + batchMaxSize);
         }
 
-        if (ship.getShipType() != null) {
-            updateShip.setShipType(ship.getShipType());
-        }
+        ShipBatchResult[] results = new ShipBatchResult[ships.size()];
+        List<Ship> chunk = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            try {
+                ship.setId(null);
+                shipRules.prepareNewShip(ship);
+            } catch (RuntimeException e) {
+                results[i] = ShipBatchResult.failed(i, e.getMessage());
+                continue;
+            }
 
-        if (ship.getProdDate() != null) {
-            updateShip.setProdDate(validateProdDate(ship.getProdDate()));
+            chunk.add(ship);
+            chunkIndexes.add(i);
+            if (chunk.size() == batchChunkSize) {
+                insertChunk(chunk, chunkIndexes, results);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, chunkIndexes, results);
         }
 
-        if (ship.getUsed() != null) {
-            updateShip.setUsed(ship.getUsed());
+        shipQueryCache.invalidate();
+        return Arrays.asList(results);
+    }
+
+    private void insertChunk(List<Ship> chunk, List<Integer> chunkIndexes, ShipBatchResult[] results) {
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                shipJdbcRepository.insertAll(chunk);
+                return null;
+            });
+        } catch (DataAccessException | TransactionException e) {
+            // a failed commit loses only this chunk, the ones before it are committed already
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Integer index : chunkIndexes) {
+                results[index] = ShipBatchResult.failed(index, message);
+            }
+            return;
         }
 
-        if (ship.getSpeed() != null) {
-            updateShip.setSpeed(ship.getSpeed());
+        for (int i = 0; i < chunk.size(); i++) {
+            Ship ship = chunk.get(i);
+            results[chunkIndexes.get(i)] = ShipBatchResult.created(chunkIndexes.get(i), ship.getId());
+            synchronized (writeLock(ship.getId())) {
+                shipCache.put(ship);
+                textSearch.onSave(ship);
+                shipColumnStore.onSave(ship);
+            }
         }
+    }
+
+    @Override
+    public Ship findById(Long id) {
+        return shipCache.get(id).orElse(null);
+    }
 
-        if (ship.getCrewSize() != null) {
-            updateShip.setCrewSize(ship.getCrewSize());
+    /**
+     * Merges the non-null fields into the cached ship, recomputes the rating and writes the
+     * changed columns with one UPDATE conditional on the version the merge started from. If the
+     * ship moved on meanwhile, the merge is retried from the current row up to
+     * {@code ships.update.maxAttempts} times, unless the caller asked for a specific version.
+     */
+    @Override
+    public Ship updateShip(Long id, Ship ship, Long expectedVersion) {
+        Ship current = currentShip(id);
+
+        for (int attempt = 1; ; attempt++) {
+            if (expectedVersion == null || expectedVersion.equals(current.getVersion())) {
+                Ship updateShip = shipRules.merge(current, ship);
+                synchronized (writeLock(id)) {
+                    if (shipJdbcRepository.updateIfVersion(id, current.getVersion(), changes(ship, updateShip))) {
+                        shipCache.put(updateShip);
+                        shipQueryCache.invalidate();
+                        textSearch.onSave(updateShip);
+                        shipColumnStore.onSave(updateShip);
+                        return updateShip;
+                    }
+                }
+            }
+
+            // the cached copy may be stale, so the answer comes from the current row
+            shipCache.invalidate(id);
+            if (attempt == updateMaxAttempts) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT);
+            }
+            current = currentShip(id);
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT);
+            }
         }
+    }
 
-        Double newRating = calculateRating(updateShip);
-        updateShip.setRating(newRating);
+    // the fields the request set, with the values the merge validated, and the new rating
+    private static Ship changes(Ship ship, Ship updateShip) {
+        Ship changes = new Ship();
+        changes.setName(ship.getName() != null ? updateShip.getName() : null);
+        changes.setPlanet(ship.getPlanet() != null ? updateShip.getPlanet() : null);
+        changes.setShipType(ship.getShipType() != null ? updateShip.getShipType() : null);
+        changes.setProdDate(ship.getProdDate() != null ? updateShip.getProdDate() : null);
+        changes.setUsed(ship.getUsed() != null ? updateShip.getUsed() : null);
+        changes.setSpeed(ship.getSpeed() != null ? updateShip.getSpeed() : null);
+        changes.setCrewSize(ship.getCrewSize() != null ? updateShip.getCrewSize() : null);
+        changes.setRating(updateShip.getRating());
+        return changes;
+    }
 
-        return shipRepository.save(updateShip);
+    // the version check runs against the primary, so the row to merge must come from there too
+    private Ship currentShip(Long id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> shipCache.get(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @Override
     public void deleteShip(Long id) {
-        shipRepository.deleteById(id);
+        // an update that lost the race finds no row, so it cannot bring the ship back
+        synchronized (writeLock(id)) {
+            if (!shipJdbcRepository.deleteById(id)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            }
+            shipCache.putDeleted(id);
+            shipQueryCache.invalidate();
+            textSearch.onDelete(id);
+            shipColumnStore.onDelete(id);
+        }
+    }
+
+    private Object writeLock(Long id) {
+        return writeLocks[(int) Long.remainderUnsigned(id, WRITE_LOCKS)];
+    }
+
+    @Override
+    public Specification<Ship> filterShips(ShipFilter filter) {
+        return Specification.where(filterShipsByName(filter.getName())
+                .and(filterShipsByPlanet(filter.getPlanet())))
+                .and(filterShipsByShipType(filter.getShipType()))
+                .and(filterShipsByDate(filter.getAfter(), filter.getBefore()))
+                .and(filterShipsByUsage(filter.getUsed()))
+                .and(filterShipsBySpeed(filter.getMinSpeed(), filter.getMaxSpeed()))
+                .and(filterShipsByCrewSize(filter.getMinCrewSize(), filter.getMaxCrewSize()))
+                .and(filterShipsByRating(filter.getMinRating(), filter.getMaxRating()));
     }
 
     @Override
     public Specification<Ship> filterShipsByName(String name) {
-        return (Specification<Ship>) (root, query, criteriaBuilder) ->
-                name == null ? null : criteriaBuilder.like(root.get("name"), "%" + name + "%");
+        return textSearch.contains("name", name);
     }
 
     @Override
     public Specification<Ship> filterShipsByPlanet(String planet) {
-
-        return (Specification<Ship>) (root, query, criteriaBuilder) ->
-                planet == null ? null : criteriaBuilder.like(root.get("planet"), "%" + planet + "%");
+        return textSearch.contains("planet", planet);
     }
 
     @Override
@@ -205,31 +446,50 @@ public class ShipServiceImpl implements ShipService {
         };
     }
 
-    private Date validateProdDate(Date date) {
-        Calendar dateMinCal = Calendar.getInstance();
-        Calendar dateMaxCal = Calendar.getInstance();
-
-        dateMinCal.set(2800, Calendar.JANUARY, 1);
-        dateMaxCal.set(3019, Calendar.DECEMBER, 31);
-
-        if (date.getTime() < 0 || date.getTime() < dateMinCal.getTimeInMillis()
-                || date.getTime() > dateMaxCal.getTimeInMillis()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Date...");
-        } else {
-            return date;
+    @Override
+    public Specification<Ship> filterShipsAfter(String fieldName, Comparable<?> value, Long id) {
+        if (value == null || id == null) {
+            return (root, query, criteriaBuilder) -> null;
         }
+        if ("id".equals(fieldName)) {
+            return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.get("id"), id);
+        }
+        return after(fieldName, value, id);
     }
 
-    private Double calculateRating(Ship ship) {
-
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(ship.getProdDate());
+    // the cursor value always has the Java type of the field it was read from
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<? super T>> Specification<Ship> after(String fieldName, Comparable<?> value,
+                                                                              Long id) {
+        T typedValue = (T) value;
+        return (root, query, criteriaBuilder) -> {
+            Path<T> field = root.get(fieldName);
+            return criteriaBuilder.or(
+                    criteriaBuilder.greaterThan(field, typedValue),
+                    criteriaBuilder.and(
+                            criteriaBuilder.equal(field, typedValue),
+                            criteriaBuilder.greaterThan(root.get("id"), id)));
+        };
+    }
 
-        int year = calendar.get(Calendar.YEAR);
-        double k = ship.getUsed() ? 0.5 : 1.0;
+    /**
+     * Records the CPU time the calling thread spends on a query, by query kind and by the path
+     * that answered it, so the paths can be compared on live traffic.
+     */
+    private <T> T measureCpu(String kind, String path, Supplier<T> query) {
+        if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return query.get();
+        }
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        try {
+            return query.get();
+        } finally {
+            meterRegistry.timer("ships.query.cpu", "kind", kind, "path", path)
+                    .record(threadMXBean.getCurrentThreadCpuTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        double currentRating = ((80 * ship.getSpeed() * k) / (3019 - year + 1));
-        currentRating = Math.round(currentRating * 100.0) / 100.0;
-        return currentRating;
+    private String queryPath() {
+        return queryPlansEnabled ? "plan" : "criteria";
     }
-}
\ No newline at end of file
+}
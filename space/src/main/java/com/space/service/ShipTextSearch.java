@@ -0,0 +1,22 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+
+public interface ShipTextSearch {
+
+    Specification<Ship> contains(String fieldName, String text);
+
+    /**
+     * Ids of the ships whose field contains the text, or null if the search has to run as LIKE.
+     */
+    Set<Long> findIds(String fieldName, String text);
+
+    void rebuild();
+
+    void onSave(Ship ship);
+
+    void onDelete(Long id);
+}
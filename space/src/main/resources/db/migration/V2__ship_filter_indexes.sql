@@ -0,0 +1,12 @@
+-- Range filters and ORDER BY of GET /rest/ships and /rest/ships/count.
+-- InnoDB appends the primary key to every secondary index, so these also serve
+-- the (field, id) ordering used by keyset pagination.
+CREATE INDEX idx_ship_speed ON ship (speed);
+CREATE INDEX idx_ship_prod_date ON ship (prodDate);
+CREATE INDEX idx_ship_rating ON ship (rating);
+CREATE INDEX idx_ship_crew_size ON ship (crewSize);
+
+-- Equality filters first, then the most selective range column; covers
+-- the count query for shipType/isUsed/after/before without touching rows.
+CREATE INDEX idx_ship_type_used_date ON ship (shipType, isUsed, prodDate);
+CREATE INDEX idx_ship_used_speed_rating ON ship (isUsed, speed, rating);
@@ -0,0 +1,11 @@
+-- Progress of the bulk re-rating job: every ship with id <= lastId has been re-rated.
+CREATE TABLE IF NOT EXISTS ship_rerate_checkpoint
+(
+    job       VARCHAR(32) NOT NULL,
+    lastId    BIGINT(20)  NOT NULL,
+    processed BIGINT(20)  NOT NULL,
+    updated   BIGINT(20)  NOT NULL,
+    PRIMARY KEY (job)
+)
+    ENGINE = InnoDB
+    DEFAULT CHARACTER SET = utf8;
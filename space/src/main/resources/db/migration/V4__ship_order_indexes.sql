@@ -0,0 +1,10 @@
+-- Pages of GET /rest/ships are ordered by (field, id). InnoDB already keys these indexes by
+-- (field, id), but spelling the id out lets every engine read a page from the index in order
+-- and stop after offset + pageSize rows, without sorting the filtered set.
+CREATE INDEX idx_ship_speed_id ON ship (speed, id);
+CREATE INDEX idx_ship_prod_date_id ON ship (prodDate, id);
+CREATE INDEX idx_ship_rating_id ON ship (rating, id);
+
+DROP INDEX idx_ship_speed ON ship;
+DROP INDEX idx_ship_prod_date ON ship;
+DROP INDEX idx_ship_rating ON ship;
@@ -0,0 +1,3 @@
+-- Optimistic locking: every update of a ship is conditional on the version it was computed
+-- from and increments it.
+ALTER TABLE ship ADD COLUMN version BIGINT(20) NOT NULL DEFAULT 0;
@@ -0,0 +1,100 @@
+package com.space.config;
+
+import com.space.controller.utils.TestDataSourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A request whose query is still queued when the request times out. The query pool is filled
+ * with blocked tasks first, and the timeout is fired through the mock async context.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class CancelOnTimeoutInterceptorTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+    private BoundedExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void setup() throws InterruptedException {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        executor = context.getBean("shipQueryExecutor", BoundedExecutor.class);
+        release = new CountDownLatch(1);
+
+        int poolSize = context.getEnvironment().getProperty("ships.async.poolSize", Integer.class, 16);
+        CountDownLatch started = new CountDownLatch(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            executor.supply(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+        }
+        assertTrue("Пул запросов не заполнился", started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    //test1
+    @Test
+    public void timedOutRequestGets503AndDropsItsQuery() throws Exception {
+        int blocked = executor.getPendingTasks();
+        MvcResult result = mockMvc.perform(get("/rest/ships/1")).andReturn();
+        assertTrue("Запрос должен выполняться асинхронно", result.getRequest().isAsyncStarted());
+        assertEquals("Запрос должен ждать в очереди", blocked + 1, executor.getPendingTasks());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        release.countDown();
+        for (int i = 0; i < 50 && executor.getPendingTasks() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("Отмененный запрос должен освободить исполнитель", 0, executor.getPendingTasks());
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -1,5 +1,6 @@
 package com.space.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.space.config.MyWebAppInit;
 import com.space.config.WebConfig;
@@ -23,6 +24,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -154,6 +156,34 @@ public class CreateShipTest {
         assertTrue("Возвращается не правильный результат при запросе создания корабля с параметром isUsed.", actual.equals(expected));
     }
 
+    //test10
+    @Test
+    public void createShipsBatchTest() throws Exception {
+        expected.isUsed = false;
+        expected.rating = 12.8;
+
+        ResultActions resultActions = mockMvc.perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("[" + TestsHelper.NORMAL_JSON + "," + TestsHelper.EMPTY_NAME_JSON + "," + TestsHelper.NORMAL_JSON + "]"))
+                .andExpect(status().isOk());
+
+        JsonNode results = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+        assertTrue("Возвращается не правильный результат при пакетном создании кораблей.",
+                results.size() == 3
+                        && results.get(0).get("id").asLong() == 41L && results.get(0).get("error").isNull()
+                        && results.get(1).get("id").isNull() && !results.get(1).get("error").isNull()
+                        && results.get(2).get("id").asLong() == 42L && results.get(2).get("error").isNull());
+
+        expected.id = 42L;
+        String contentAsString = TestsHelper.perform(mockMvc, get("/rest/ships/42")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ShipInfoTest actual = mapper.readValue(contentAsString, ShipInfoTest.class);
+        assertTrue("Корабль, созданный пакетным запросом, сохранен неверно.", actual.equals(expected));
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
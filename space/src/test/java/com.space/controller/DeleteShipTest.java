@@ -3,6 +3,7 @@ package com.space.controller;
 import com.space.config.MyWebAppInit;
 import com.space.config.WebConfig;
 import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -66,7 +67,7 @@ public class DeleteShipTest {
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        mockMvc.perform(get("/rest/ships/1")
+        TestsHelper.perform(mockMvc, get("/rest/ships/1")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isNotFound());
     }
@@ -1,17 +1,26 @@
 package com.space.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.space.config.MyWebAppInit;
 import com.space.config.WebConfig;
 import com.space.controller.utils.ShipInfoTest;
 import com.space.controller.utils.TestDataSourceConfig;
 import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
 import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipFilter;
+import com.space.service.ShipJpaService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
@@ -24,6 +33,7 @@ import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.test.util.AssertionErrors.assertTrue;
@@ -52,7 +62,7 @@ public class GetAllTest {
     //test1
     @Test
     public void getAllWithoutFiltersReturnAllShips() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -68,7 +78,7 @@ public class GetAllTest {
     //test2
     @Test
     public void getAllWithFiltersNamePageNumber() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?name=ra&pageNumber=1")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?name=ra&pageNumber=1")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -85,7 +95,7 @@ public class GetAllTest {
     //test3
     @Test
     public void getAllWithFiltersPlanetPageSize() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?planet=ur&pageSize=4")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?planet=ur&pageSize=4")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -104,7 +114,7 @@ public class GetAllTest {
     public void getAllWithFiltersShipTypeAfterBefore() throws Exception {
         //after 00:00 01.01.3000
         //before 00:00 01.01.3011
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=MILITARY&after=32503672800000&before=32850741600000")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?shipType=MILITARY&after=32503672800000&before=32850741600000")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -124,7 +134,7 @@ public class GetAllTest {
     //test5
     @Test
     public void getAllWithFiltersShipTypeMinSpeedMaxSpeed() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=TRANSPORT&minSpeed=0.3&maxSpeed=0.6")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?shipType=TRANSPORT&minSpeed=0.3&maxSpeed=0.6")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -144,7 +154,7 @@ public class GetAllTest {
     //test6
     @Test
     public void getAllWithFiltersShipTypeMinCrewSizeMaxCrewSize() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=MERCHANT&minCrewSize=10&maxCrewSize=1000")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?shipType=MERCHANT&minCrewSize=10&maxCrewSize=1000")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -164,7 +174,7 @@ public class GetAllTest {
     //test7
     @Test
     public void getAllWithFiltersIsUsedMinMaxRating() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?isUsed=true&minRating=2&maxRating=4")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?isUsed=true&minRating=2&maxRating=4")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -184,7 +194,7 @@ public class GetAllTest {
     //test8
     @Test
     public void getAllWithFiltersIsUsedMaxSpeedMaxRating() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?isUsed=false&maxSpeed=0.6&maxRating=7")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?isUsed=false&maxSpeed=0.6&maxRating=7")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -204,7 +214,7 @@ public class GetAllTest {
     //test9
     @Test
     public void getAllWithFiltersNameOrderSpeed() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?name=ca&order=SPEED")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?name=ca&order=SPEED")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -225,7 +235,7 @@ public class GetAllTest {
     public void getAllWithFiltersAfterBeforeMinCrewMaxCrew() throws Exception {
         //after 00:00 01.01.2996
         //before 00:00 01.01.3009
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?after=32377442400000&before=32787669600000&minCrewSize=20&maxCrewSize=1500&pageNumber=1")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships?after=32377442400000&before=32787669600000&minCrewSize=20&maxCrewSize=1500&pageNumber=1")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -243,6 +253,129 @@ public class GetAllTest {
         assertTrue("Возвращается не правильный результат при запросе GET /rest/ships с параметрами after, before, minCrewSize и maxCrewSize.", actual.equals(expected));
     }
 
+    //test11
+    @Test
+    public void getAllWithCursorWalksAllPagesInOrder() throws Exception {
+        for (ShipOrder order : ShipOrder.values()) {
+            List<ShipInfoTest> ships = new ArrayList<>();
+            String cursor = "";
+            while (cursor != null) {
+                MvcResult result = TestsHelper.perform(mockMvc, get("/rest/ships?isUsed=false&pageSize=4&order=" + order + "&cursor=" + cursor)
+                        .accept(MediaType.APPLICATION_JSON_UTF8))
+                        .andExpect(status().isOk())
+                        .andReturn();
+                ships.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+                cursor = result.getResponse().getHeader(ShipController.NEXT_CURSOR_HEADER);
+            }
+
+            List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(order,
+                    testsHelper.getShipInfosByIsUsed(false,
+                            testsHelper.getAllShips()));
+
+            assertTrue("Возвращается не правильный результат при постраничном обходе GET /rest/ships с параметром cursor и order " + order + ".", ships.equals(expected));
+        }
+    }
+
+    //test12
+    @Test
+    public void exportWithFiltersStreamsAllMatchingShips() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships/export?isUsed=false&minSpeed=0.3"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<ShipInfoTest> ships = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            ships.add(mapper.readValue(line, ShipInfoTest.class));
+        }
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.ID,
+                testsHelper.getShipInfosByMinSpeed(0.3,
+                        testsHelper.getShipInfosByIsUsed(false,
+                                testsHelper.getAllShips())));
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/export с параметрами isUsed и minSpeed.", ships.equals(expected));
+    }
+
+    //test13
+    @Test
+    public void getPageReturnsItemsAndTotal() throws Exception {
+        MvcResult result = TestsHelper.perform(mockMvc, get("/rest/ships/page?isUsed=false&minSpeed=0.3&pageNumber=1&pageSize=4")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode page = mapper.readTree(result.getResponse().getContentAsString());
+        List<ShipInfoTest> actual = mapper.readValue(mapper.treeAsTokens(page.get("items")), typeReference);
+        List<ShipInfoTest> matching = testsHelper.getShipInfosByMinSpeed(0.3,
+                testsHelper.getShipInfosByIsUsed(false,
+                        testsHelper.getAllShips()));
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(1, 4, matching);
+
+        assertTrue("Возвращается не правильный список при запросе GET /rest/ships/page с параметрами isUsed и minSpeed.", actual.equals(expected));
+        assertTrue("Возвращается не правильное количество при запросе GET /rest/ships/page с параметрами isUsed и minSpeed.", page.get("total").asInt() == matching.size());
+    }
+
+    //test14
+    @Test
+    public void getAllReturnsSameJsonAsShipEntities() throws Exception {
+        MvcResult result = TestsHelper.perform(mockMvc, get("/rest/ships?pageSize=100")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Ship> ships = context.getBean(ShipRepository.class).findAll(Sort.by("id"));
+        String expected = context.getBean(ObjectMapper.class).writeValueAsString(ships);
+
+        assertTrue("Ответ GET /rest/ships должен совпадать с сериализацией сущностей Ship.",
+                result.getResponse().getContentAsString().equals(expected));
+    }
+
+    //test15
+    @Test
+    public void getAllFromQueryPlansMatchesCriteria() throws Exception {
+        ShipJpaService shipService = context.getBean(ShipJpaService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        ShipFilter[] filters = {
+                new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null),
+                new ShipFilter("ni", null, null, null, null, null, null, null, null, null, null, null),
+                new ShipFilter("ni", "a", ShipType.MILITARY, null, null, false, 0.1, null, null, 3000, null, null),
+                new ShipFilter(null, null, null, 32503680000000L, 33123600000000L, null, null, 0.9, 10, null, 1.0, 10.0)
+        };
+        Pageable pageable = PageRequest.of(0, 100, Sort.by("speed", "id"));
+
+        for (ShipFilter filter : filters) {
+            List<ShipView> criteria = shipRepository.findViews(shipService.filterShips(filter),
+                    pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+            assertTrue("Результат по готовому плану запроса должен совпадать с Criteria для " + filter + ".",
+                    objectMapper.writeValueAsString(shipService.getShips(filter, pageable))
+                            .equals(objectMapper.writeValueAsString(criteria)));
+            assertTrue("Количество по готовому плану запроса должно совпадать с Criteria для " + filter + ".",
+                    shipService.getShipsCount(filter).equals(shipService.getShipsCount(shipService.filterShips(filter))));
+        }
+    }
+
+    //test16
+    @Test
+    public void getAllPagesFollowEveryOrder() throws Exception {
+        for (ShipOrder order : ShipOrder.values()) {
+            List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(order,
+                    testsHelper.getShipInfosByIsUsed(false, testsHelper.getAllShips()));
+
+            List<ShipInfoTest> actual = new ArrayList<>();
+            for (int pageNumber = 0; pageNumber * 3 < expected.size(); pageNumber++) {
+                MvcResult result = TestsHelper.perform(mockMvc, get("/rest/ships?isUsed=false&order=" + order
+                        + "&pageNumber=" + pageNumber)
+                        .accept(MediaType.APPLICATION_JSON_UTF8))
+                        .andExpect(status().isOk())
+                        .andReturn();
+                actual.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            }
+
+            assertTrue("Страницы GET /rest/ships не совпадают с полной сортировкой для order=" + order + ".",
+                    actual.equals(expected));
+        }
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
@@ -5,6 +5,8 @@ import com.space.config.WebConfig;
 import com.space.controller.utils.TestDataSourceConfig;
 import com.space.controller.utils.TestsHelper;
 import com.space.model.ShipType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -21,6 +23,8 @@ import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManagerFactory;
+
 import static org.springframework.test.util.AssertionErrors.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -45,7 +49,7 @@ public class GetCountTest {
     //test1
     @Test
     public void getCountWithoutFiltersReturnAllShips() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -60,7 +64,7 @@ public class GetCountTest {
     //test2
     @Test
     public void getCountWithFiltersMinRatingMinCrewSizeMinSpeed() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?minRating=0.5&minCrewSize=100&minSpeed=0.3")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?minRating=0.5&minCrewSize=100&minSpeed=0.3")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -79,7 +83,7 @@ public class GetCountTest {
     @Test
     public void getCountWithFiltersNameAfterMaxRating() throws Exception {
         //after 00:00 01/01/2900
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?name=nt&after=32188140000000&maxRating=3")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?name=nt&after=32188140000000&maxRating=3")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -97,7 +101,7 @@ public class GetCountTest {
     //test4
     @Test
     public void getCountWithFiltersShipTypeIsUsed() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?shipType=MERCHANT&isUsed=true")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?shipType=MERCHANT&isUsed=true")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -115,7 +119,7 @@ public class GetCountTest {
     //test5
     @Test
     public void getCountWithFiltersShipTypeMaxCrewSize() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?shipType=MILITARY&maxCrewSize=400")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?shipType=MILITARY&maxCrewSize=400")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -132,7 +136,7 @@ public class GetCountTest {
     //test6
     @Test
     public void getCountWithFiltersPlanet() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?planet=us")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?planet=us")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -148,7 +152,7 @@ public class GetCountTest {
     @Test
     public void getCountWithFiltersShipTypeBeforeMaxSpeed() throws Exception {
         //before 00:00 01/01/3015
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?shipType=TRANSPORT&before=32976972000000&maxSpeed=0.7")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?shipType=TRANSPORT&before=32976972000000&maxSpeed=0.7")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -166,7 +170,7 @@ public class GetCountTest {
     //test8
     @Test
     public void getCountWithFiltersIsUsedMinMaxSpeed() throws Exception {
-        ResultActions resultActions = this.mockMvc.perform(get("/rest/ships/count?isUsed=false&minSpeed=0.3&maxSpeed=0.6")
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?isUsed=false&minSpeed=0.3&maxSpeed=0.6")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -181,6 +185,41 @@ public class GetCountTest {
         assertTrue("Во звращается не правильный результат при запросе GET /rest/ships/count с параметрами isUsed, minSpeed и maxSpeed.", actual == expected);
     }
 
+    //test9
+    @Test
+    public void getCountDoesNotLoadShipEntities() throws Exception {
+        Statistics statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        TestsHelper.perform(this.mockMvc, get("/rest/ships/count?isUsed=false&minSpeed=0.3")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        assertTrue("Запрос GET /rest/ships/count не должен загружать сущности Ship.",
+                statistics.getEntityLoadCount() == 0 && statistics.getEntityFetchCount() == 0);
+        assertTrue("Запрос GET /rest/ships/count должен выполняться одним запросом COUNT.",
+                statistics.getPrepareStatementCount() == 1);
+    }
+
+    //test10
+    @Test
+    public void getCountWithFiltersNamePlanetIgnoresCase() throws Exception {
+        ResultActions resultActions = TestsHelper.perform(this.mockMvc, get("/rest/ships/count?name=oRIOn&planet=MARS")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        String contentAsString = result.getResponse().getContentAsString();
+        int actual = Integer.parseInt(contentAsString);
+        int expected = testsHelper.getShipInfosByPlanet("Mars",
+                testsHelper.getShipInfosByName("Orion",
+                        testsHelper.getAllShips())).size();
+
+        assertTrue("Фильтры name и planet в запросе GET /rest/ships/count должны не зависеть от регистра.",
+                expected > 0 && actual == expected);
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
@@ -17,11 +17,13 @@ import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,7 +44,7 @@ public class GetShipTest {
     //test1
     @Test
     public void getShipByIdEqualZeroTest() throws Exception {
-        mockMvc.perform(get("/rest/ships/0")
+        TestsHelper.perform(mockMvc, get("/rest/ships/0")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isBadRequest());
     }
@@ -50,7 +52,7 @@ public class GetShipTest {
     //test2
     @Test
     public void getShipByIdNotNumberTest() throws Exception {
-        mockMvc.perform(get("/rest/ships/test")
+        TestsHelper.perform(mockMvc, get("/rest/ships/test")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isBadRequest());
     }
@@ -58,7 +60,7 @@ public class GetShipTest {
     //test3
     @Test
     public void getShipByIdNotExistTest() throws Exception {
-        mockMvc.perform(get("/rest/ships/410")
+        TestsHelper.perform(mockMvc, get("/rest/ships/410")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isNotFound());
     }
@@ -68,7 +70,7 @@ public class GetShipTest {
     public void getShipByIdTest() throws Exception {
         ShipInfoTest expected = new TestsHelper().getShipInfosById(14);
 
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships/14")
+        ResultActions resultActions = TestsHelper.perform(mockMvc, get("/rest/ships/14")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -78,6 +80,19 @@ public class GetShipTest {
         assertTrue("Вернулся неправильный объект при запросе GET /rest/ships/{id}", actual.equals(expected));
     }
 
+    //test5
+    @Test
+    public void getShipByIdReleasesRequestThread() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships/14")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn();
+
+        assertTrue("Запрос GET /rest/ships/{id} должен обрабатываться асинхронно.",
+                result.getRequest().isAsyncStarted());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
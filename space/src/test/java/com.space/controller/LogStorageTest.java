@@ -0,0 +1,198 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The REST API with {@code ships.storage=log}. All tests share one log, so each works on ships
+ * of its own planet.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@TestPropertySource(properties = {"ships.storage=log", "ships.log.dir=" + LogStorageTest.LOG_DIR})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class LogStorageTest {
+
+    static final String LOG_DIR = "target/log-storage-test";
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    @BeforeClass
+    public static void clearLog() throws IOException {
+        FileSystemUtils.deleteRecursively(Paths.get(LOG_DIR));
+    }
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    //test1
+    @Test
+    public void batchIsListedCountedAndExported() throws Exception {
+        String batch = "[" + json("Log 3", "Vulcan", 0.3) + "," + json("", "Vulcan", 0.5) + ","
+                + json("Log 1", "Vulcan", 0.1) + "," + json("Log 5", "Vulcan", 0.5) + ","
+                + json("Log 2", "Vulcan", 0.2) + "," + json("Log 4", "Vulcan", 0.4) + "]";
+        JsonNode results = mapper.readTree(mockMvc.perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(batch))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertTrue("Пакетное создание должно отклонить только корабль без имени",
+                results.size() == 6 && results.get(1).get("id").isNull() && !results.get(1).get("error").isNull()
+                        && !results.get(5).get("id").isNull());
+
+        List<ShipInfoTest> bySpeed = mapper.readValue(TestsHelper.perform(mockMvc,
+                get("/rest/ships?planet=Vulcan&order=SPEED&pageSize=10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), typeReference);
+        assertEquals("Неверный список кораблей из журнала", "[Log 1, Log 2, Log 3, Log 4, Log 5]",
+                names(bySpeed).toString());
+
+        assertEquals("Неверное количество кораблей из журнала", "5", TestsHelper.perform(mockMvc,
+                get("/rest/ships/count?planet=Vulcan"))
+                .andReturn().getResponse().getContentAsString());
+        assertEquals("Шаблон LIKE должен обрабатываться журналом", "5", TestsHelper.perform(mockMvc,
+                get("/rest/ships/count").param("planet", "v_lc%n"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        List<String> exported = new ArrayList<>();
+        for (String line : mockMvc.perform(get("/rest/ships/export?planet=Vulcan"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n")) {
+            exported.add(mapper.readValue(line, ShipInfoTest.class).name);
+        }
+        assertEquals("Неверная выгрузка кораблей из журнала", "[Log 3, Log 1, Log 5, Log 2, Log 4]",
+                exported.toString());
+
+        List<ShipInfoTest> walked = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MvcResult result = TestsHelper.perform(mockMvc,
+                    get("/rest/ships?planet=Vulcan&order=SPEED&pageSize=2&cursor=" + cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            walked.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader(ShipController.NEXT_CURSOR_HEADER);
+        }
+        assertEquals("Неверный постраничный обход журнала", names(bySpeed), names(walked));
+    }
+
+    //test2
+    @Test
+    public void updateChecksIfMatch() throws Exception {
+        long id = create(json("Log Enterprise", "Romulus", 0.5));
+        String etag = TestsHelper.perform(mockMvc, get("/rest/ships/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("Новый корабль должен иметь нулевую версию", "\"0\"", etag);
+
+        String newEtag = mockMvc.perform(post("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content("{\"crewSize\": 100}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("После обновления версия корабля должна увеличиться", "\"1\"", newEtag);
+
+        mockMvc.perform(post("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content("{\"crewSize\": 200}"))
+                .andExpect(status().isConflict());
+
+        ShipInfoTest actual = mapper.readValue(TestsHelper.perform(mockMvc, get("/rest/ships/" + id))
+                .andReturn().getResponse().getContentAsString(), ShipInfoTest.class);
+        assertEquals("Обновление с устаревшей версией не должно применяться", 100, actual.crewSize);
+    }
+
+    //test3
+    @Test
+    public void deleteRemovesShip() throws Exception {
+        long id = create(json("Log Defiant", "Bajor", 0.5));
+
+        mockMvc.perform(delete("/rest/ships/" + id))
+                .andExpect(status().isOk());
+
+        TestsHelper.perform(mockMvc, get("/rest/ships/" + id))
+                .andExpect(status().isNotFound());
+        assertEquals("Удаленный корабль не должен учитываться", "0", TestsHelper.perform(mockMvc,
+                get("/rest/ships/count?planet=Bajor"))
+                .andReturn().getResponse().getContentAsString());
+        mockMvc.perform(delete("/rest/ships/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    //test4
+    @Test
+    public void rerateIsRejected() throws Exception {
+        mockMvc.perform(post("/rest/ships/rerate"))
+                .andExpect(status().isNotImplemented());
+    }
+
+    private long create(String json) throws Exception {
+        return mapper.readTree(mockMvc.perform(post("/rest/ships")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(json))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private static String json(String name, String planet, double speed) {
+        return "{\"name\": \"" + name + "\", \"planet\": \"" + planet + "\", \"shipType\": \"MILITARY\", "
+                + "\"prodDate\": 32998274577071, \"isUsed\": false, \"speed\": " + speed + ", \"crewSize\": 14}";
+    }
+
+    private static List<String> names(List<ShipInfoTest> ships) {
+        return ships.stream().map(ship -> ship.name).collect(Collectors.toList());
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
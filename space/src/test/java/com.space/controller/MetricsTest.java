@@ -0,0 +1,109 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class MetricsTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    //test1
+    @Test
+    public void scrapeShowsEndpointTimersAndStatusCounters() throws Exception {
+        TestsHelper.perform(mockMvc, get("/rest/ships").accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+        TestsHelper.perform(mockMvc, get("/rest/ships/count")).andExpect(status().isOk());
+        TestsHelper.perform(mockMvc, get("/rest/ships/1")).andExpect(status().isOk());
+        TestsHelper.perform(mockMvc, get("/rest/ships/1000")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/rest/ships/2")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/rest/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        for (String endpoint : new String[]{"list", "count", "get", "delete"}) {
+            assertTrue("Нет таймера запросов для " + endpoint,
+                    scrape.matches("(?s).*http_server_requests_seconds_count\\{[^}]*endpoint=\"" + endpoint + "\".*"));
+        }
+        assertTrue("Нет процентилей времени запросов",
+                scrape.matches("(?s).*http_server_requests_seconds\\{[^}]*quantile=\"0.99\".*"));
+        assertTrue("Нет счетчика ответов 404",
+                scrape.matches("(?s).*http_server_responses_total\\{[^}]*status=\"404\".*"));
+        for (String phase : new String[]{"service", "repository", "serialization"}) {
+            assertTrue("Нет таймера фазы " + phase,
+                    scrape.matches("(?s).*ships_phase_seconds_count\\{[^}]*phase=\"" + phase + "\".*"));
+        }
+    }
+
+    //test2
+    @Test
+    public void queriesAreGroupedByShapeWithoutValues() throws Exception {
+        mockMvc.perform(delete("/rest/metrics/queries")).andExpect(status().isOk());
+        for (String minSpeed : new String[]{"0.1", "0.3", "0.5"}) {
+            TestsHelper.perform(mockMvc, get("/rest/ships?pageNumber=1&minSpeed=" + minSpeed + "&shipType=MILITARY"));
+        }
+        TestsHelper.perform(mockMvc, get("/rest/ships/count?minSpeed=0.2")).andExpect(status().isOk());
+
+        String report = mockMvc.perform(get("/rest/metrics/queries?order=MEAN&top=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Map<String, Object>> shapes = new ObjectMapper().readValue(report,
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        assertEquals("Неверное количество форм запросов", 2, shapes.size());
+        for (Map<String, Object> shape : shapes) {
+            String sql = (String) shape.get("sql");
+            assertTrue("Значения фильтров не убраны из запроса: " + sql,
+                    !sql.contains("0.") && !sql.contains("MILITARY") && sql.contains("?"));
+            if ("list".equals(shape.get("kind"))) {
+                assertEquals("Запросы с разными значениями не объединены", 3, shape.get("executions"));
+            } else {
+                assertEquals("Неверный вид запроса", "count", shape.get("kind"));
+                assertEquals("Неверное количество строк подсчета", 1, shape.get("rowsReturned"));
+            }
+        }
+
+        mockMvc.perform(get("/rest/metrics/queries?top=0")).andExpect(status().isBadRequest());
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
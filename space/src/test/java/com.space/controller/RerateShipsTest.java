@@ -0,0 +1,138 @@
+package com.space.controller;
+
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.service.RatingEngine;
+import com.space.service.ShipRerateJob;
+import com.space.service.ShipRerateStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class RerateShipsTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("update ship set rating = 0");
+    }
+
+    //test1
+    @Test
+    public void rerateRecomputesAllRatings() throws Exception {
+        this.mockMvc.perform(post("/rest/ships/rerate")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isAccepted());
+
+        ShipRerateStatus status = awaitRerate();
+        int ships = jdbcTemplate.queryForObject("select count(*) from ship", Integer.class);
+
+        assertTrue("Пересчет рейтингов должен завершиться успешно.", status.getState() == ShipRerateStatus.State.DONE);
+        assertTrue("Пересчет рейтингов должен обработать все корабли.",
+                status.getProcessed() == ships && status.getUpdated() == ships);
+        assertTrue("Рейтинги кораблей после пересчета не совпадают с расчетными.", ratingsMatch(0));
+        assertTrue("Пересчет рейтинга должен увеличивать версию корабля.",
+                jdbcTemplate.queryForObject("select count(*) from ship where version <> 1", Integer.class) == 0);
+        assertTrue("После завершения пересчета контрольная точка должна удаляться.",
+                jdbcTemplate.queryForObject("select count(*) from ship_rerate_checkpoint", Integer.class) == 0);
+
+        this.mockMvc.perform(get("/rest/ships/rerate")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+    }
+
+    //test2
+    @Test
+    public void rerateResumesFromCheckpoint() throws Exception {
+        jdbcTemplate.update("insert into ship_rerate_checkpoint(job, lastId, processed, updated) values ('rating', 20, 20, 20)");
+
+        this.mockMvc.perform(post("/rest/ships/rerate")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isAccepted());
+
+        ShipRerateStatus status = awaitRerate();
+        int ships = jdbcTemplate.queryForObject("select count(*) from ship", Integer.class);
+
+        assertTrue("Пересчет должен продолжаться с контрольной точки.", status.getProcessed() == ships);
+        assertTrue("Корабли до контрольной точки не должны пересчитываться.",
+                jdbcTemplate.queryForObject("select count(*) from ship where id <= 20 and rating <> 0", Integer.class) == 0);
+        assertTrue("Рейтинги кораблей после контрольной точки не совпадают с расчетными.", ratingsMatch(20));
+    }
+
+    //test3
+    @Test
+    public void rerateWithRestartIgnoresCheckpoint() throws Exception {
+        jdbcTemplate.update("insert into ship_rerate_checkpoint(job, lastId, processed, updated) values ('rating', 20, 20, 20)");
+
+        this.mockMvc.perform(post("/rest/ships/rerate?restart=true")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isAccepted());
+
+        awaitRerate();
+
+        assertTrue("Пересчет с параметром restart должен пересчитать все корабли.", ratingsMatch(0));
+    }
+
+    private ShipRerateStatus awaitRerate() throws InterruptedException {
+        ShipRerateJob job = context.getBean(ShipRerateJob.class);
+        for (int i = 0; i < 500; i++) {
+            ShipRerateStatus status = job.getStatus();
+            if (status.getState() != ShipRerateStatus.State.RUNNING
+                    && status.getState() != ShipRerateStatus.State.STOPPING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Пересчет рейтингов не завершился за 5 секунд.");
+    }
+
+    private boolean ratingsMatch(long afterId) {
+        RatingEngine ratingEngine = context.getBean(RatingEngine.class);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "select prodDate, speed, isUsed, rating from ship where id > ?", afterId);
+        for (Map<String, Object> row : rows) {
+            double expected = ratingEngine.calculateRating(((java.util.Date) row.get("prodDate")).getTime(),
+                    ((Number) row.get("speed")).doubleValue(), (Boolean) row.get("isUsed"));
+            if (expected != ((Number) row.get("rating")).doubleValue()) {
+                return false;
+            }
+        }
+        return !rows.isEmpty();
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -11,6 +11,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
@@ -22,7 +24,15 @@ import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
 import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -215,6 +225,71 @@ public class UpdateShipTest {
     }
 
 
+    //test12
+    @Test
+    public void updateShipWithStaleVersionTest() throws Exception {
+        String etag = TestsHelper.perform(mockMvc, get("/rest/ships/3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue("GET /rest/ships/{id} должен возвращать ETag с версией корабля", etag != null);
+
+        String newEtag = mockMvc.perform(post("/rest/ships/3")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content("{\"crewSize\": 100}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue("После обновления версия корабля должна измениться", newEtag != null && !newEtag.equals(etag));
+
+        mockMvc.perform(post("/rest/ships/3")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content("{\"crewSize\": 200}"))
+                .andExpect(status().isConflict());
+
+        String contentAsString = TestsHelper.perform(mockMvc, get("/rest/ships/3"))
+                .andReturn().getResponse().getContentAsString();
+        ShipInfoTest actual = mapper.readValue(contentAsString, ShipInfoTest.class);
+        assertEquals("Обновление с устаревшей версией не должно применяться", 100, actual.crewSize);
+    }
+
+    //test13
+    @Test
+    public void concurrentUpdatesAreNotLostTest() throws Exception {
+        int threads = 4;
+        int updatesPerThread = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                int updated = 0;
+                for (int i = 0; i < updatesPerThread; i++) {
+                    int status = mockMvc.perform(post("/rest/ships/7")
+                            .contentType(MediaType.APPLICATION_JSON_UTF8)
+                            .content("{\"speed\": 0.5}"))
+                            .andReturn().getResponse().getStatus();
+                    assertTrue("Неожиданный статус параллельного обновления: " + status,
+                            status == HttpStatus.OK.value() || status == HttpStatus.CONFLICT.value());
+                    if (status == HttpStatus.OK.value()) {
+                        updated++;
+                    }
+                }
+                return updated;
+            }));
+        }
+        int updated = 0;
+        for (Future<Integer> result : results) {
+            updated += result.get();
+        }
+        executor.shutdown();
+
+        String etag = TestsHelper.perform(mockMvc, get("/rest/ships/7"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("Каждое успешное обновление должно увеличивать версию", "\"" + updated + "\"", etag);
+        assertTrue("Ни одно параллельное обновление не прошло", updated > 0);
+    }
+
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
@@ -1,8 +1,15 @@
 package com.space.controller.utils;
 
+import com.space.config.MetricsConfig;
+import com.space.config.StorageEngine;
+import com.space.service.ShipQueryProfiler;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
@@ -19,10 +26,15 @@ import java.util.Properties;
 
 @Configuration
 @EnableTransactionManagement
-@ComponentScan("com.space.service")
+@ComponentScan({"com.space.service", "com.space.repository"})
 @EnableJpaRepositories(basePackages = "com.space.repository")
+@Import(MetricsConfig.class)
+@PropertySource("classpath:test.properties")
 public class TestDataSourceConfig {
 
+    @Autowired
+    private Environment env;
+
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
@@ -39,10 +51,10 @@ public class TestDataSourceConfig {
     @Bean
     public DataSource dataSource() {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/test?serverTimezone=UTC");
-        dataSource.setUsername("root");
-        dataSource.setPassword("1ivjwBvp%");
+        dataSource.setDriverClassName(engine().getDriver());
+        dataSource.setUrl(env.getRequiredProperty("db.url"));
+        dataSource.setUsername(env.getRequiredProperty("db.username"));
+        dataSource.setPassword(env.getRequiredProperty("db.password"));
         return dataSource;
     }
 
@@ -63,8 +75,14 @@ public class TestDataSourceConfig {
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.hbm2ddl.auto", "none");
-        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        properties.setProperty("hibernate.generate_statistics", "true");
+        properties.setProperty("hibernate.dialect", engine().getDialect());
+        ShipQueryProfiler.register(properties);
 
         return properties;
     }
+
+    private StorageEngine engine() {
+        return StorageEngine.of(env.getRequiredProperty("db.url"));
+    }
 }
\ No newline at end of file
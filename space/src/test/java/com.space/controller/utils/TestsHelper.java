@@ -2,10 +2,18 @@ package com.space.controller.utils;
 
 import com.space.controller.ShipOrder;
 import com.space.model.ShipType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultHandler;
+import org.springframework.test.web.servlet.ResultMatcher;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
 public class TestsHelper {
     public final static String NORMAL_JSON =
             "{" +
@@ -338,7 +346,7 @@ public class TestsHelper {
         if (order == ShipOrder.ID) {
             ships.sort((o1, o2) -> (int) (o1.id - o2.id));
         } else if (order == ShipOrder.DATE) {
-            ships.sort((o1, o2) -> (int) (o1.prodDate - o2.prodDate));
+            ships.sort((o1, o2) -> Long.compare(o1.prodDate, o2.prodDate));
         } else if (order == ShipOrder.SPEED) {
             ships.sort((o1, o2) -> {
                 if (o1.speed > o2.speed)
@@ -375,4 +383,33 @@ public class TestsHelper {
     public ShipInfoTest getShipInfosById(long id) {
         return allShips.stream().filter(s -> s.id == id).findFirst().orElse(null);
     }
+
+    /**
+     * Performs the request and, if the handler answered asynchronously, the async dispatch,
+     * so the result holds the final status and body either way.
+     */
+    public static ResultActions perform(MockMvc mockMvc, RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result));
+        }
+        return new ResultActions() {
+            @Override
+            public ResultActions andExpect(ResultMatcher matcher) throws Exception {
+                matcher.match(result);
+                return this;
+            }
+
+            @Override
+            public ResultActions andDo(ResultHandler handler) throws Exception {
+                handler.handle(result);
+                return this;
+            }
+
+            @Override
+            public MvcResult andReturn() {
+                return result;
+            }
+        };
+    }
 }
\ No newline at end of file
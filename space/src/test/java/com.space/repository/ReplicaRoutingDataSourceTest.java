@@ -0,0 +1,172 @@
+package com.space.repository;
+
+import com.space.config.ReadYourWritesInterceptor;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+/**
+ * Routing over embedded databases that do not replicate, so each answers with its own name and
+ * a write to the primary stands for one the replicas have not caught up with.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static int databases;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        databases++;
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRoutingDataSource.setPinnedToPrimary(false);
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    public void readsGoToReplicasAndWritesToPrimary() {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        assertEquals("Запрос вне чтения должен идти в основную базу", "primary", node(jdbcTemplate));
+        assertTrue("Чтение должно идти в реплику",
+                ReplicaRoutingDataSource.read(() -> node(jdbcTemplate)).startsWith("replica"));
+        assertTrue("Транзакция только для чтения должна идти в реплику",
+                readOnly.execute(status -> node(jdbcTemplate)).startsWith("replica"));
+        assertEquals("Транзакция записи должна идти в основную базу", "primary",
+                readWrite.execute(status -> node(jdbcTemplate)));
+
+        jdbcTemplate.update("insert into ship(name) values ('Serenity')");
+        assertEquals("Запись должна попасть в основную базу", 1,
+                new JdbcTemplate(dataSource.getPrimary()).queryForObject("select count(*) from ship", Integer.class));
+    }
+
+    @Test
+    public void roundRobinTakesReplicasInTurn() {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(ReplicaRoutingDataSource.read(() -> node(jdbcTemplate)));
+        }
+        assertEquals("Реплики должны выбираться по очереди",
+                Arrays.asList("replica1", "replica2", "replica1", "replica2"), nodes);
+    }
+
+    @Test
+    public void leastLoadedAvoidsBusyReplica() throws Exception {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Selection.LEAST_LOADED);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        try (Connection busy = ReplicaRoutingDataSource.read(() -> {
+            try {
+                Connection connection = dataSource.getConnection();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("select 1");
+                }
+                return connection;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        })) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("Чтение должно идти в свободную реплику", "replica2",
+                        ReplicaRoutingDataSource.read(() -> node(jdbcTemplate)));
+            }
+        }
+    }
+
+    @Test
+    public void clientThatWroteReadsItsWrite() throws Exception {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(2000);
+
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/rest/ships");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(post, response, null);
+        jdbcTemplate.update("insert into ship(name) values ('Serenity')");
+        interceptor.afterCompletion(post, response, null, null);
+        Cookie written = response.getCookie(ReadYourWritesInterceptor.COOKIE);
+        assertTrue("Запись должна выставлять cookie окна чтения своих записей", written != null);
+
+        assertEquals("Реплика еще не получила запись", 0, countShips(jdbcTemplate));
+
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/rest/ships");
+        get.setCookies(written);
+        interceptor.preHandle(get, new MockHttpServletResponse(), null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("Клиент должен видеть свою запись", 1, countShips(jdbcTemplate));
+            assertEquals("Закрепление за основной базой должно переходить в поток запроса", 1,
+                    CompletableFuture.supplyAsync(() -> countShips(jdbcTemplate),
+                            task -> executor.execute(ReplicaRoutingDataSource.propagatePin(task))).get());
+        } finally {
+            interceptor.afterCompletion(get, new MockHttpServletResponse(), null, null);
+            executor.shutdown();
+        }
+        assertEquals("После запроса чтение снова должно идти в реплику", 0, countShips(jdbcTemplate));
+
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/rest/ships");
+        expired.setCookies(new Cookie(ReadYourWritesInterceptor.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+        interceptor.preHandle(expired, new MockHttpServletResponse(), null);
+        assertEquals("После окна чтение должно идти в реплику", 0, countShips(jdbcTemplate));
+        interceptor.afterCompletion(expired, new MockHttpServletResponse(), null, null);
+    }
+
+    private static String node(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static int countShips(JdbcTemplate jdbcTemplate) {
+        return ReplicaRoutingDataSource.read(
+                () -> jdbcTemplate.queryForObject("select count(*) from ship", Integer.class));
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Selection selection) {
+        return new ReplicaRoutingDataSource(database("primary"),
+                Arrays.asList(database("replica1"), database("replica2")), selection);
+    }
+
+    private DataSource database(String name) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name + databases + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(4);
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.execute("create table node(name varchar(20))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        jdbcTemplate.execute("create table ship(id bigint auto_increment primary key, name varchar(50))");
+        return pool;
+    }
+}
@@ -0,0 +1,114 @@
+package com.space.repository;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ShipIndexPlanTest {
+
+    private static final String[] SHIP_TYPES = {"TRANSPORT", "MILITARY", "MERCHANT"};
+
+    private Connection connection;
+
+    @Before
+    public void setup() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:plans;MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+        connection = dataSource.getConnection();
+        try (PreparedStatement insert = connection.prepareStatement("insert into ship(name, planet, shipType, prodDate, " +
+                "isUsed, speed, crewSize, rating) values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < 5000; i++) {
+                insert.setString(1, "Ship " + i);
+                insert.setString(2, "Planet " + i % 9);
+                insert.setString(3, SHIP_TYPES[i % 3]);
+                insert.setDate(4, java.sql.Date.valueOf((2800 + i % 220) + "-01-01"));
+                insert.setBoolean(5, i % 2 == 0);
+                insert.setDouble(6, 0.01 + (i % 99) / 100.0);
+                insert.setInt(7, 1 + i % 9999);
+                insert.setDouble(8, (i % 800) / 100.0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void speedRangeUsesIndex() throws Exception {
+        assertIndexed("select * from ship where speed between 0.3 and 0.35 order by speed");
+    }
+
+    @Test
+    public void prodDateRangeUsesIndex() throws Exception {
+        assertIndexed("select * from ship where prodDate >= '3010-01-01' order by prodDate");
+    }
+
+    @Test
+    public void ratingRangeUsesIndex() throws Exception {
+        assertIndexed("select * from ship where rating <= 0.5 order by rating");
+    }
+
+    @Test
+    public void crewSizeRangeUsesIndex() throws Exception {
+        assertIndexed("select * from ship where crewSize between 100 and 200");
+    }
+
+    @Test
+    public void shipTypeAndUsageCountIsCovered() throws Exception {
+        assertIndexed("select count(id) from ship where shipType = 'MERCHANT' and isUsed = true");
+    }
+
+    @Test
+    public void shipTypeUsageAndDateUseCompositeIndex() throws Exception {
+        assertIndexed("select * from ship where shipType = 'MILITARY' and isUsed = false " +
+                "and prodDate between '2900-01-01' and '2910-01-01'");
+    }
+
+    @Test
+    public void usageAndSpeedUseCompositeIndex() throws Exception {
+        assertIndexed("select * from ship where isUsed = false and speed between 0.3 and 0.32");
+    }
+
+    @Test
+    public void orderedPagesAreReadFromIndex() throws Exception {
+        for (String field : new String[]{"speed", "prodDate", "rating"}) {
+            String plan = explain("select * from ship where name like '%1%' order by " + field + ", id limit 3 offset 3");
+            assertTrue("Страница сортируется вместо чтения индекса по порядку: " + plan, plan.contains("index sorted"));
+        }
+    }
+
+    private void assertIndexed(String sql) throws Exception {
+        String plan = explain(sql);
+        assertTrue("Запрос выполняется полным сканированием таблицы: " + plan, !plan.contains("tableScan"));
+    }
+
+    private String explain(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ShipLogTest {
+
+    private static final long REGION = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public TemporaryFolder crashFolder = new TemporaryFolder();
+
+    private Path directory;
+    private ShipLog shipLog;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.getRoot().toPath();
+        shipLog = ShipLog.open(directory, REGION, 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        shipLog.close();
+    }
+
+    @Test
+    public void writesSurviveReopening() throws IOException {
+        Map<Long, String> expected = new TreeMap<>();
+        for (int i = 0; i < 300; i++) {
+            // long texts take two slots, so some have to be padded to the next region
+            Ship ship = ship(i % 10 == 0 ? "Звездный крейсер дальнего радиуса действия " + i : "Orion " + i % 7, i);
+            shipLog.insert(ship);
+            expected.put(ship.getId(), describe(ship));
+        }
+        Ship changed = ship("Серенити", 5);
+        changed.setId(10L);
+        changed.setVersion(1L);
+        assertTrue("Замена с верной версией должна пройти", shipLog.replace(changed, 0));
+        assertTrue("Замена со старой версией должна быть отклонена", !shipLog.replace(changed, 0));
+        expected.put(10L, describe(changed));
+        assertTrue("Удаление существующего корабля должно пройти", shipLog.delete(3L));
+        expected.remove(3L);
+
+        reopen();
+
+        assertEquals("Корабли после перезапуска не совпадают", expected, describeAll());
+    }
+
+    @Test
+    public void snapshotReplacesOlderFilesAndTailIsReplayed() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Ship ship = ship("Daedalus", i);
+            shipLog.insert(ship);
+            ids.add(ship.getId());
+        }
+        shipLog.snapshot();
+        shipLog.delete(ids.get(0));
+        Ship last = ship("Hermes", 1);
+        shipLog.insert(last);
+        Map<Long, String> expected = describeAll();
+
+        assertEquals("После снимка должны остаться снимок и новый журнал",
+                "[ships-2.log, ships-2.snapshot]", files().toString());
+
+        reopen();
+
+        assertEquals("Корабли после снимка и хвоста журнала не совпадают", expected, describeAll());
+        shipLog.delete(last.getId());
+        reopen();
+        Ship next = ship("Icarus", 2);
+        shipLog.insert(next);
+        assertTrue("Идентификатор удаленного корабля не должен использоваться снова", next.getId() > last.getId());
+    }
+
+    @Test
+    public void tornTailIsCutOff() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            shipLog.insert(ship("Excalibur " + i, i));
+        }
+        Map<Long, String> expected = describeAll();
+        shipLog.insert(ship("Explorer", 7));
+        shipLog.close();
+
+        // a crash in the middle of the last record
+        Path file = directory.resolve("ships-1.log");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), channel.size() - 20);
+        }
+
+        shipLog = ShipLog.open(directory, REGION, 0, 0);
+        assertEquals("Поврежденная запись должна быть отброшена", expected, describeAll());
+
+        Ship ship = ship("Odyssey", 3);
+        shipLog.insert(ship);
+        expected.put(ship.getId(), describe(ship));
+        reopen();
+        assertEquals("Запись после восстановления должна сохраниться", expected, describeAll());
+    }
+
+    @Test
+    public void unclosedLogIsRecovered() throws IOException {
+        for (int i = 0; i < 150; i++) {
+            shipLog.insert(ship(i % 10 == 0 ? "Звездный крейсер дальнего радиуса действия " + i : "Hunter " + i % 5, i));
+        }
+        shipLog.delete(7L);
+        Map<Long, String> expected = describeAll(shipLog);
+
+        // a crash skips close(), so the file keeps the length of its mapped regions, zeros after the last record
+        Path crashed = crashFolder.getRoot().toPath();
+        for (String name : files()) {
+            Files.copy(directory.resolve(name), crashed.resolve(name));
+        }
+        assertEquals("Журнал без закрытия должен иметь длину отображенных областей",
+                0L, Files.size(crashed.resolve("ships-1.log")) % REGION);
+
+        ShipLog recovered = ShipLog.open(crashed, REGION, 0, 0);
+        try {
+            assertEquals("Корабли после сбоя не совпадают", expected, describeAll(recovered));
+            Ship ship = ship("Aries", 4);
+            recovered.insert(ship);
+            expected.put(ship.getId(), describe(ship));
+        } finally {
+            recovered.close();
+        }
+
+        recovered = ShipLog.open(crashed, REGION, 0, 0);
+        try {
+            assertEquals("Запись после восстановления из сбоя должна сохраниться", expected, describeAll(recovered));
+        } finally {
+            recovered.close();
+        }
+    }
+
+    private void reopen() throws IOException {
+        shipLog.close();
+        shipLog = ShipLog.open(directory, REGION, 0, 0);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private Map<Long, String> describeAll() {
+        return describeAll(shipLog);
+    }
+
+    private static Map<Long, String> describeAll(ShipLog shipLog) {
+        Map<Long, String> ships = new TreeMap<>();
+        shipLog.ships().forEach(ship -> ships.put(ship.getId(), describe(ship)));
+        return ships;
+    }
+
+    private static String describe(Ship ship) {
+        return ship.getId() + " " + ship.getVersion() + " " + ship.getName() + " " + ship.getPlanet() + " "
+                + ship.getShipType() + " " + ship.getProdDate().getTime() + " " + ship.getUsed() + " "
+                + ship.getSpeed() + " " + ship.getCrewSize() + " " + ship.getRating();
+    }
+
+    private static Ship ship(String name, int seed) {
+        Ship ship = new Ship();
+        ship.setName(name);
+        ship.setPlanet(seed % 2 == 0 ? "Mars" : "Jupiter " + seed % 11);
+        ship.setShipType(ShipType.values()[seed % ShipType.values().length]);
+        ship.setProdDate(new Date(32_000_000_000_000L + seed * 86_400_000L));
+        ship.setUsed(seed % 3 == 0);
+        ship.setSpeed(0.01 + seed % 99 / 100.0);
+        ship.setCrewSize(1 + seed);
+        ship.setRating(seed / 10.0);
+        return ship;
+    }
+}
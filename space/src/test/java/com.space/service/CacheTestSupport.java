@@ -0,0 +1,71 @@
+package com.space.service;
+
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.Date;
+
+/**
+ * The service with both caches on, in one context shared by the cache tests. test.sql recreates
+ * the table and reuses its ids before every test, so the caches are emptied before every test too.
+ * The table is changed behind the application's back with plain JDBC, so a stale answer shows
+ * that it came from a cache.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@TestPropertySource(properties = {"ships.cache.enabled=true", "ships.queryCache.enabled=true"})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public abstract class CacheTestSupport {
+
+    static final ShipFilter MILITARY = new ShipFilter(null, null, ShipType.MILITARY,
+            null, null, null, null, null, null, null, null, null);
+
+    WebApplicationContext context;
+    ShipService shipService;
+    JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void clearCaches() {
+        shipService = context.getBean("shipServiceImpl", ShipService.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        context.getBean(ShipCache.class).invalidateAll();
+        context.getBean(ShipQueryCache.class).invalidate();
+    }
+
+    static Ship newShip(String name) {
+        Ship ship = new Ship();
+        ship.setName(name);
+        ship.setPlanet("Mars");
+        ship.setShipType(ShipType.MILITARY);
+        ship.setProdDate(new Date(32998274577071L));
+        ship.setSpeed(0.8);
+        ship.setCrewSize(14);
+        return ship;
+    }
+
+    void insertBehindTheCache(Long id) {
+        jdbcTemplate.update("insert into ship(id, name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) "
+                + "values (?, 'Ghost', 'Mars', 'MILITARY', '3000-01-01', false, 0.5, 10, 1.0)", id);
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,65 @@
+package com.space.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class NgramIndexTest {
+
+    private static final String[] NAMES = {"Orion III", "Daedalus", "Eagle Transporter", "F-302 Mongoose",
+            "Excalibur", "Explorer", "Icarus I", "Hermes", "Odyssey", "Orbit Jet", "Aries Ib", "Hunter IV"};
+
+    private NgramIndex index;
+
+    @Before
+    public void setup() {
+        index = new NgramIndex();
+        for (int i = 0; i < NAMES.length; i++) {
+            index.put((long) i, NAMES[i]);
+        }
+    }
+
+    @Test
+    public void searchMatchesCaseInsensitiveContains() {
+        for (String text : new String[]{"ori", "Ex", "xpl", "car", "Jet", "ORT", "zzz", "s I", "er IV"}) {
+            Set<Long> actual = index.search(text);
+            if (text.length() < NgramIndex.N) {
+                assertTrue("Короткий запрос должен обрабатываться через LIKE: " + text, actual == null);
+                continue;
+            }
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < NAMES.length; i++) {
+                if (NAMES[i].toLowerCase().contains(text.toLowerCase())) {
+                    expected.add((long) i);
+                }
+            }
+            assertEquals("Неверный результат поиска по подстроке: " + text, expected, actual);
+        }
+    }
+
+    @Test
+    public void putReplacesAndRemoveDropsValue() {
+        index.put(1L, "Serenity");
+        assertEquals("Старое значение осталось в индексе", new HashSet<Long>(), index.search("dal"));
+        assertEquals("Новое значение не найдено", new HashSet<>(Arrays.asList(1L)), index.search("ren"));
+
+        index.remove(1L);
+        assertEquals("Удаленное значение найдено", new HashSet<Long>(), index.search("ren"));
+        assertEquals("Неверный размер индекса", NAMES.length - 1, index.size());
+    }
+
+    @Test
+    public void searchIgnoresAccentsLikeGeneralCollation() {
+        index.put(100L, "Ève Brûlée");
+        index.put(101L, "Ёжик");
+        assertEquals("Поиск должен игнорировать диакритику", new HashSet<>(Arrays.asList(100L)), index.search("BRULE"));
+        assertEquals("Поиск без диакритики должен находить значение с ней", new HashSet<>(Arrays.asList(101L)),
+                index.search("ежи"));
+    }
+}
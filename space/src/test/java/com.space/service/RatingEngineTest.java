@@ -0,0 +1,89 @@
+package com.space.service;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class RatingEngineTest {
+
+    private static final String[] ZONES = {"UTC", "Europe/Moscow", "America/New_York", "Australia/Sydney"};
+
+    @Test
+    public void ratingMatchesCalendarFormula() {
+        Random random = new Random(19);
+        for (String zoneId : ZONES) {
+            RatingEngine engine = new RatingEngine(ZoneId.of(zoneId));
+            TimeZone timeZone = TimeZone.getTimeZone(zoneId);
+
+            for (int i = 0; i < 100000; i++) {
+                long prodDate = startOfYear(timeZone, 2800 + random.nextInt(220))
+                        + (long) (random.nextDouble() * 366 * 24 * 3600 * 1000L) - 12 * 3600 * 1000L;
+                double speed = Math.round((0.01 + random.nextDouble() * 0.98) * 100) / 100.0;
+                boolean isUsed = random.nextBoolean();
+
+                assertEquals("Рейтинг отличается от расчета через Calendar в зоне " + zoneId + " для даты " + prodDate,
+                        calendarRating(timeZone, prodDate, speed, isUsed), engine.calculateRating(prodDate, speed, isUsed));
+            }
+        }
+    }
+
+    @Test
+    public void bulkRatingMatchesSingleRating() {
+        RatingEngine engine = new RatingEngine(ZoneId.of("Europe/Moscow"));
+        Random random = new Random(7);
+        int count = 1000;
+        long[] prodDates = new long[count];
+        double[] speeds = new double[count];
+        boolean[] isUsed = new boolean[count];
+        double[] ratings = new double[count];
+        for (int i = 0; i < count; i++) {
+            prodDates[i] = 26192235600000L + (long) (random.nextDouble() * 6900000000000L);
+            speeds[i] = 0.01 + random.nextDouble() * 0.98;
+            isUsed[i] = random.nextBoolean();
+        }
+
+        engine.calculateRatings(prodDates, speeds, isUsed, ratings, count);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("Пакетный расчет рейтинга отличается от одиночного",
+                    engine.calculateRating(prodDates[i], speeds[i], isUsed[i]), ratings[i]);
+        }
+    }
+
+    @Test
+    public void prodDateBoundsAreWholeYears() {
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/Moscow");
+        RatingEngine engine = new RatingEngine(ZoneId.of("Europe/Moscow"));
+
+        assertTrue("Начало 2800 года должно быть допустимой датой", engine.isValidProdDate(startOfYear(timeZone, 2800)));
+        assertTrue("Конец 2799 года не должен быть допустимой датой", !engine.isValidProdDate(startOfYear(timeZone, 2800) - 1));
+        assertTrue("Конец 3019 года должен быть допустимой датой", engine.isValidProdDate(startOfYear(timeZone, 3020) - 1));
+        assertTrue("Начало 3020 года не должно быть допустимой датой", !engine.isValidProdDate(startOfYear(timeZone, 3020)));
+    }
+
+    private static long startOfYear(TimeZone timeZone, int year) {
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private static double calendarRating(TimeZone timeZone, long prodDate, double speed, boolean isUsed) {
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.setTimeInMillis(prodDate);
+
+        int year = calendar.get(Calendar.YEAR);
+        double k = isUsed ? 0.5 : 1.0;
+
+        double currentRating = ((80 * speed * k) / (3019 - year + 1));
+        currentRating = Math.round(currentRating * 100.0) / 100.0;
+        return currentRating;
+    }
+}
@@ -0,0 +1,134 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+/**
+ * The ship cache with the cache on.
+ */
+public class ShipCacheTest extends CacheTestSupport {
+
+    private MeterRegistry meterRegistry;
+    private double misses;
+    private double hits;
+
+    @Before
+    public void setup() {
+        meterRegistry = context.getBean(MeterRegistry.class);
+        misses = gets("miss");
+        hits = gets("hit");
+    }
+
+    //test1
+    @Test
+    public void secondLookupIsServedFromCache() {
+        assertEquals("Неверное имя корабля", "Orion III", shipService.findById(1L).getName());
+        jdbcTemplate.update("update ship set name = 'Changed' where id = 1");
+
+        assertEquals("Повторный запрос должен обслуживаться из кэша", "Orion III", shipService.findById(1L).getName());
+        assertTrue("Проверка существования должна обслуживаться из кэша", shipService.isExists(1L));
+        assertEquals("Неверное количество промахов кэша", 1.0, misses());
+        assertEquals("Неверное количество попаданий в кэш", 2.0, hits());
+    }
+
+    //test2
+    @Test
+    public void missingShipIsCachedToo() {
+        assertTrue("Несуществующий корабль найден", !shipService.isExists(100L));
+        insertBehindTheCache(100L);
+
+        assertTrue("Отсутствие корабля должно обслуживаться из кэша", shipService.findById(100L) == null);
+        assertEquals("Неверное количество попаданий в кэш", 1.0, hits());
+    }
+
+    //test3
+    @Test
+    public void writesReplaceCachedShip() {
+        shipService.findById(1L);
+
+        Ship changes = new Ship();
+        changes.setName("Serenity");
+        shipService.updateShip(1L, changes, null);
+        assertTrue("Обновление не должно изменять переданные изменения", changes.getRating() == null);
+        Ship cached = shipService.findById(1L);
+        assertEquals("После обновления кэш должен содержать новое имя", "Serenity", cached.getName());
+        assertEquals("После обновления кэш должен содержать новую версию", 1L, cached.getVersion());
+
+        shipService.deleteShip(1L);
+        assertTrue("После удаления корабль не должен находиться", !shipService.isExists(1L));
+    }
+
+    //test4
+    @Test
+    public void deletedShipStaysDeletedInCache() {
+        shipService.deleteShip(2L);
+        // the row reappearing stands for a replica that has not seen the delete yet
+        insertBehindTheCache(2L);
+
+        assertTrue("Удаленный корабль не должен находиться", !shipService.isExists(2L));
+        assertTrue("Удаленный корабль не должен возвращаться", shipService.findById(2L) == null);
+        assertEquals("Удаление должно запоминаться в кэше без промахов", 0.0, misses());
+    }
+
+    //test5
+    @Test
+    public void newShipIsCachedAsStored() throws Exception {
+        Ship ship = newShip("Serenity");
+        shipService.addNewShip(ship);
+
+        Date stored = jdbcTemplate.queryForObject("select prodDate from ship where id = ?", Date.class, ship.getId());
+        assertEquals("Дата в кэше должна совпадать с датой в таблице", stored.getTime(),
+                shipService.findById(ship.getId()).getProdDate().getTime());
+    }
+
+    //test6
+    @Test
+    public void olderWriteDoesNotReplaceNewerOne() {
+        ShipCache shipCache = context.getBean(ShipCache.class);
+        shipCache.put(ship(1L, "Serenity", 2L));
+        shipCache.put(ship(1L, "Firefly", 1L));
+
+        assertEquals("Более старая версия не должна заменять новую", "Serenity", shipService.findById(1L).getName());
+    }
+
+    //test7
+    @Test
+    public void batchShipsAreCachedAsStored() {
+        Ship ship = newShip("Serenity");
+        Long id = shipService.addNewShips(Collections.singletonList(ship)).get(0).getId();
+
+        Ship cached = shipService.findById(id);
+        assertEquals("Корабль из пакета должен находиться в кэше", 0.0, misses());
+        assertEquals("Корабль из пакета должен иметь нулевую версию", 0L, cached.getVersion());
+    }
+
+    private static Ship ship(Long id, String name, Long version) {
+        Ship ship = new Ship();
+        ship.setId(id);
+        ship.setName(name);
+        ship.setVersion(version);
+        return ship;
+    }
+
+    // the context is shared, so the counts are taken from the start of the test
+    private double misses() {
+        return gets("miss") - misses;
+    }
+
+    private double hits() {
+        return gets("hit") - hits;
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "ships.byId").tag("result", result)
+                .functionCounter().count();
+    }
+}
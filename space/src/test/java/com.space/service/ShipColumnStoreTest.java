@@ -0,0 +1,322 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ShipColumnStoreTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Moscow");
+    private static final String[] NAMES = {"Orion III", "Daedalus", "Eagle Transporter", "F-302 Mongoose",
+            "Excalibur", "Explorer", "Icarus I", "Hermes", "Odyssey", "Orbit Jet", "Aries Ib", "Hunter IV"};
+    private static final String[] PLANETS = {"Mars", "Jupiter", "Earth", "Neptune", "Venus"};
+
+    private final Random random = new Random(7);
+
+    private ShipColumnStore store;
+    private ShipColumnStore parallelStore;
+    private List<Ship> ships;
+
+    @Before
+    public void setup() {
+        store = new ShipColumnStore(ZONE);
+        parallelStore = new ShipColumnStore(ZONE, 4, 128);
+        ships = new ArrayList<>();
+        for (long id = 1; id <= 1500; id++) {
+            Ship ship = randomShip(id);
+            ships.add(ship);
+            store.put(ship);
+            parallelStore.put(ship);
+        }
+    }
+
+    @Test
+    public void findViewsMatchesFilteringShips() {
+        for (int i = 0; i < 200; i++) {
+            ShipFilter filter = randomFilter();
+            for (String property : new String[]{"id", "speed", "prodDate", "rating"}) {
+                Sort sort = random.nextBoolean() ? Sort.by(property) : Sort.by(property, "id");
+                PageRequest pageable = PageRequest.of(random.nextInt(3), 1 + random.nextInt(50), sort);
+                List<String> expected = expected(filter, property).stream()
+                        .skip(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .map(this::describe)
+                        .collect(Collectors.toList());
+                List<String> actual = store.findViews(filter, pageable).stream()
+                        .map(this::describe)
+                        .collect(Collectors.toList());
+                assertEquals("Неверная страница для " + filter + " и сортировки " + property, expected, actual);
+            }
+            assertEquals("Неверное количество для " + filter,
+                    (long) expected(filter, "id").size(), store.count(filter));
+        }
+    }
+
+    @Test
+    public void parallelScanMatchesSequentialScan() {
+        for (int i = 0; i < 100; i++) {
+            ShipFilter filter = randomFilter();
+            for (String property : new String[]{"id", "speed", "prodDate", "rating"}) {
+                Sort sort = random.nextBoolean() ? Sort.by(property) : Sort.by(property).descending();
+                PageRequest pageable = PageRequest.of(random.nextInt(3), 1 + random.nextInt(50), sort);
+                List<String> expected = store.findViews(filter, pageable).stream()
+                        .map(this::describe)
+                        .collect(Collectors.toList());
+                List<String> actual = parallelStore.findViews(filter, pageable).stream()
+                        .map(this::describe)
+                        .collect(Collectors.toList());
+                assertEquals("Параллельный поиск вернул другую страницу для " + filter + " и " + sort, expected, actual);
+            }
+            assertEquals("Параллельный подсчет вернул другое количество для " + filter,
+                    store.count(filter), parallelStore.count(filter));
+        }
+    }
+
+    @Test
+    public void putReplacesAndRemoveDropsShip() {
+        Ship ship = randomShip(10);
+        ship.setName("Serenity");
+        store.put(ship);
+        ships.set(9, ship);
+        store.remove(3L);
+        ships.remove(2);
+
+        ShipFilter all = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+        assertEquals("Неверное количество после удаления", (long) ships.size(), store.count(all));
+        List<ShipView> found = store.findViews(new ShipFilter("serenity", null, null, null, null, null,
+                null, null, null, null, null, null), PageRequest.of(0, 10));
+        assertTrue("Измененный корабль не найден", found.size() == 1 && found.get(0).getId() == 10L);
+        assertEquals("Неверный результат после удаления",
+                expected(all, "speed").stream().map(this::describe).collect(Collectors.toList()),
+                store.findViews(all, PageRequest.of(0, 2000, Sort.by("speed"))).stream()
+                        .map(this::describe).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void renamesDoNotGrowDictionaries() {
+        int distinct = store.distinctTexts();
+        for (int i = 0; i < 1000; i++) {
+            Ship ship = randomShip(1 + i % 20);
+            ship.setName("Rename " + i);
+            ship.setPlanet("Planet " + i);
+            store.put(ship);
+        }
+        for (long id = 1; id <= 20; id++) {
+            store.remove(id);
+        }
+
+        assertTrue("Словари должны хранить только используемые значения",
+                store.distinctTexts() <= distinct);
+        assertEquals("Удаленные имена не должны находиться", 0L, store.count(new ShipFilter("Rename", null, null,
+                null, null, null, null, null, null, null, null, null)));
+        Ship ship = randomShip(2000);
+        ship.setName("Rename 999");
+        store.put(ship);
+        List<ShipView> found = store.findViews(new ShipFilter("rename 999", null, null, null, null, null,
+                null, null, null, null, null, null), PageRequest.of(0, 10));
+        assertTrue("Повторно использованный код должен декодироваться в новое имя",
+                found.size() == 1 && found.get(0).getName().equals("Rename 999"));
+    }
+
+    @Test
+    public void lateWritesDoNotOverrideNewerOnes() {
+        Ship newer = randomShip(10);
+        newer.setName("Serenity");
+        newer.setVersion(2L);
+        store.putIfNewer(newer);
+        Ship older = randomShip(10);
+        older.setName("Firefly");
+        older.setVersion(1L);
+        store.putIfNewer(older);
+        store.delete(11L);
+        Ship deleted = randomShip(11);
+        deleted.setName("Firefly");
+        deleted.setVersion(5L);
+        store.putIfNewer(deleted);
+
+        assertEquals("Более старая версия не должна заменять новую", 1L, store.count(new ShipFilter("serenity",
+                null, null, null, null, null, null, null, null, null, null, null)));
+        assertEquals("Запоздавшая запись не должна применяться", 0L, store.count(new ShipFilter("firefly",
+                null, null, null, null, null, null, null, null, null, null, null)));
+        assertEquals("Удаленный корабль не должен возвращаться", ships.size() - 1, store.size());
+    }
+
+    @Test
+    public void oldTombstonesAreDropped() {
+        store.delete(11L);
+        assertEquals("Свежее удаление должно оставлять отметку", 1, store.tombstones());
+
+        ReflectionTestUtils.setField(store, "tombstoneSeconds", 0L);
+        store.delete(12L);
+        assertEquals("Устаревшие отметки удаления должны удаляться", 0, store.tombstones());
+        assertEquals("Удаленные корабли не должны находиться", ships.size() - 2, store.size());
+    }
+
+    @Test
+    public void keysetPagesWalkAllMatches() {
+        for (int i = 0; i < 50; i++) {
+            ShipFilter filter = randomFilter();
+            for (String property : new String[]{"id", "speed", "prodDate", "rating"}) {
+                Sort sort = "id".equals(property) ? Sort.by("id") : Sort.by(property, "id");
+                int pageSize = 1 + random.nextInt(100);
+                List<String> expected = expected(filter, property).stream()
+                        .map(this::describe)
+                        .collect(Collectors.toList());
+                assertEquals("Неверный обход страниц для " + filter + " и сортировки " + property, expected,
+                        walk(store, filter, sort, property, pageSize));
+                assertEquals("Параллельный обход страниц вернул другие корабли для " + filter, expected,
+                        walk(parallelStore, filter, sort, property, pageSize));
+            }
+        }
+    }
+
+    @Test
+    public void likeWildcardsMatchLikeDatabase() {
+        ShipColumnStore likeStore = new ShipColumnStore(ZONE);
+        String[] names = {"100% Pure", "100 Pure", "A_B", "AxB", "Back\\slash", "Éclair"};
+        for (int i = 0; i < names.length; i++) {
+            Ship ship = randomShip(i + 1);
+            ship.setName(names[i]);
+            likeStore.put(ship);
+        }
+
+        assertEquals("Экранированный % должен совпадать только с %", 1L, likeStore.count(name("100\\%")));
+        assertEquals("% должен совпадать с любой последовательностью", 2L, likeStore.count(name("100%pure")));
+        assertEquals("Экранированный _ должен совпадать только с _", 1L, likeStore.count(name("a\\_b")));
+        assertEquals("_ должен совпадать с любым символом", 2L, likeStore.count(name("a_b")));
+        assertEquals("Экранированная \\ должна совпадать только с \\", 1L, likeStore.count(name("k\\\\s")));
+        assertEquals("Шаблон должен совпадать без учета акцентов", 1L, likeStore.count(name("ECL_IR")));
+    }
+
+    @Test
+    public void unsupportedQueriesGoToDatabase() {
+        assertTrue("Сортировка по нескольким полям должна обрабатываться базой",
+                store.findViews(new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null),
+                        PageRequest.of(0, 3, Sort.by("speed", "rating"))) == null);
+    }
+
+    private List<String> walk(ShipColumnStore store, ShipFilter filter, Sort sort, String property, int pageSize) {
+        List<String> walked = new ArrayList<>();
+        Comparable<?> value = null;
+        Long id = null;
+        while (true) {
+            List<ShipView> page = store.findViewsAfter(filter, sort, value, id, pageSize);
+            page.stream().map(this::describe).forEach(walked::add);
+            if (page.size() < pageSize) {
+                return walked;
+            }
+            ShipView last = page.get(pageSize - 1);
+            value = "speed".equals(property) ? last.getSpeed() : "rating".equals(property) ? last.getRating()
+                    : "prodDate".equals(property) ? last.getProdDate() : last.getId();
+            id = last.getId();
+        }
+    }
+
+    private static ShipFilter name(String name) {
+        return new ShipFilter(name, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private List<Ship> expected(ShipFilter filter, String property) {
+        Comparator<Ship> comparator;
+        switch (property) {
+            case "speed":
+                comparator = Comparator.comparing(Ship::getSpeed);
+                break;
+            case "prodDate":
+                comparator = Comparator.comparing(Ship::getProdDate);
+                break;
+            case "rating":
+                comparator = Comparator.comparing(Ship::getRating);
+                break;
+            default:
+                comparator = Comparator.comparing(Ship::getId);
+        }
+        return ships.stream()
+                .filter(ship -> matches(filter, ship))
+                .sorted(comparator.thenComparing(Ship::getId))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean matches(ShipFilter filter, Ship ship) {
+        long prodDate = ship.getProdDate().getTime();
+        return (filter.getName() == null || ship.getName().toLowerCase().contains(filter.getName().toLowerCase()))
+                && (filter.getPlanet() == null || ship.getPlanet().toLowerCase().contains(filter.getPlanet().toLowerCase()))
+                && (filter.getShipType() == null || ship.getShipType() == filter.getShipType())
+                && (filter.getAfter() == null || prodDate >= filter.getAfter())
+                && (filter.getBefore() == null || prodDate <= filter.getBefore())
+                && (filter.getUsed() == null || ship.getUsed().equals(filter.getUsed()))
+                && (filter.getMinSpeed() == null || ship.getSpeed() >= filter.getMinSpeed())
+                && (filter.getMaxSpeed() == null || ship.getSpeed() <= filter.getMaxSpeed())
+                && (filter.getMinCrewSize() == null || ship.getCrewSize() >= filter.getMinCrewSize())
+                && (filter.getMaxCrewSize() == null || ship.getCrewSize() <= filter.getMaxCrewSize())
+                && (filter.getMinRating() == null || ship.getRating() >= filter.getMinRating())
+                && (filter.getMaxRating() == null || ship.getRating() <= filter.getMaxRating());
+    }
+
+    private String describe(Ship ship) {
+        return describe(new ShipView(ship.getId(), ship.getName(), ship.getPlanet(), ship.getShipType(),
+                ship.getProdDate(), ship.getUsed(), ship.getSpeed(), ship.getCrewSize(), ship.getRating()));
+    }
+
+    private String describe(ShipView ship) {
+        return ship.getId() + " " + ship.getName() + " " + ship.getPlanet() + " " + ship.getShipType() + " "
+                + ship.getProdDate().getTime() + " " + ship.getUsed() + " " + ship.getSpeed() + " "
+                + ship.getCrewSize() + " " + ship.getRating();
+    }
+
+    private Ship randomShip(long id) {
+        Ship ship = new Ship();
+        ship.setId(id);
+        ship.setName(NAMES[random.nextInt(NAMES.length)]);
+        ship.setPlanet(PLANETS[random.nextInt(PLANETS.length)]);
+        ship.setShipType(ShipType.values()[random.nextInt(ShipType.values().length)]);
+        ship.setProdDate(day(2800 + random.nextInt(220), 1 + random.nextInt(365)));
+        ship.setUsed(random.nextBoolean());
+        ship.setSpeed(Math.round((0.01 + random.nextDouble() * 0.98) * 100) / 100.0);
+        ship.setCrewSize(1 + random.nextInt(9999));
+        ship.setRating(Math.round(random.nextDouble() * 1000) / 100.0);
+        return ship;
+    }
+
+    private ShipFilter randomFilter() {
+        Double minSpeed = random.nextInt(3) == 0 ? random.nextInt(100) / 100.0 : null;
+        Double minRating = random.nextInt(4) == 0 ? random.nextInt(500) / 100.0 : null;
+        Integer minCrewSize = random.nextInt(4) == 0 ? random.nextInt(5000) : null;
+        Long after = random.nextInt(3) == 0 ? day(2800 + random.nextInt(220), 1).getTime() + random.nextInt(3) - 1 : null;
+        return new ShipFilter(
+                random.nextInt(3) == 0 ? NAMES[random.nextInt(NAMES.length)].substring(1, 3).toUpperCase() : null,
+                random.nextInt(4) == 0 ? PLANETS[random.nextInt(PLANETS.length)].substring(1) : null,
+                random.nextInt(4) == 0 ? ShipType.values()[random.nextInt(ShipType.values().length)] : null,
+                after,
+                after != null && random.nextBoolean() ? after + 3_000_000_000_000L : null,
+                random.nextInt(3) == 0 ? random.nextBoolean() : null,
+                minSpeed,
+                minSpeed != null && random.nextBoolean() ? minSpeed + 0.3 : null,
+                minCrewSize,
+                random.nextInt(4) == 0 ? 5000 + random.nextInt(5000) : null,
+                minRating,
+                minRating != null && random.nextBoolean() ? minRating + 2 : null);
+    }
+
+    private static Date day(int year, int dayOfYear) {
+        return new Date(LocalDate.ofYearDay(year, Math.min(dayOfYear, 365)).atStartOfDay(ZONE)
+                .toInstant().toEpochMilli());
+    }
+}
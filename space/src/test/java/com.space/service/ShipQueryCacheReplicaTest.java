@@ -0,0 +1,31 @@
+package com.space.service;
+
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+/**
+ * The list and count cache with replicas configured. The test context has no replicas, only the
+ * setting, so a result cached in the read-your-writes window would show as a stale count.
+ */
+@TestPropertySource(properties = {"db.replicas.urls=jdbc:h2:mem:replica", "db.replicas.readYourWritesMs=500"})
+public class ShipQueryCacheReplicaTest extends CacheTestSupport {
+
+    //test1
+    @Test
+    public void nothingIsCachedRightAfterWrite() throws Exception {
+        shipService.deleteShip(1L);
+        long count = shipService.getShipsCount(MILITARY);
+        insertBehindTheCache(null);
+
+        assertEquals("Сразу после записи результат не должен кэшироваться", count + 1,
+                shipService.getShipsCount(MILITARY));
+
+        Thread.sleep(600);
+        long settled = shipService.getShipsCount(MILITARY);
+        insertBehindTheCache(null);
+        assertEquals("После окна чтения своих записей результат должен кэшироваться", settled,
+                shipService.getShipsCount(MILITARY));
+    }
+}
@@ -0,0 +1,65 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ReplicaRoutingDataSource;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+/**
+ * The list and count cache with the cache on. Rows inserted with plain JDBC are invisible to
+ * cached results until a write through the service bumps the generation.
+ */
+public class ShipQueryCacheTest extends CacheTestSupport {
+
+    private static final Pageable PAGE = PageRequest.of(0, 100, Sort.by("id"));
+
+    //test1
+    @Test
+    public void repeatedQueriesAreServedFromCache() {
+        long count = shipService.getShipsCount(MILITARY);
+        List<ShipView> ships = shipService.getShips(MILITARY, PAGE);
+        insertBehindTheCache(null);
+
+        assertEquals("Повторный подсчет должен обслуживаться из кэша", count, shipService.getShipsCount(MILITARY));
+        assertEquals("Повторный список должен обслуживаться из кэша", ships.size(),
+                shipService.getShips(MILITARY, PAGE).size());
+        long unused = jdbcTemplate.queryForObject(
+                "select count(*) from ship where shipType = 'MILITARY' and isUsed = false", Long.class);
+        assertEquals("Другой фильтр не должен попадать в кэш", unused, shipService.getShipsCount(
+                new ShipFilter(null, null, ShipType.MILITARY, null, null, false,
+                        null, null, null, null, null, null)));
+    }
+
+    //test2
+    @Test
+    public void writeStartsNewGeneration() throws Exception {
+        long count = shipService.getShipsCount(MILITARY);
+        insertBehindTheCache(null);
+
+        Ship ship = newShip("Serenity");
+        shipService.addNewShip(ship);
+
+        assertEquals("После записи подсчет должен выполняться заново", count + 2, shipService.getShipsCount(MILITARY));
+        assertEquals("После записи список должен выполняться заново", (int) count + 2,
+                shipService.getShips(MILITARY, PAGE).size());
+    }
+
+    //test3
+    @Test
+    public void readsPinnedToPrimaryBypassCache() {
+        long count = shipService.getShipsCount(MILITARY);
+        insertBehindTheCache(null);
+
+        long pinned = ReplicaRoutingDataSource.onPrimary(() -> shipService.getShipsCount(MILITARY));
+        assertEquals("Чтение из основной базы не должно обслуживаться из кэша", count + 1, pinned);
+        assertEquals("Чтение из основной базы не должно попадать в кэш", count, shipService.getShipsCount(MILITARY));
+    }
+}
@@ -0,0 +1,68 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ShipQueryProfilerTest {
+
+    @Test
+    public void normalizeStripsValuesAndIdListLengths() {
+        assertEquals("Неверная форма запроса с литералами",
+                "select ship0_.id as col_0_0_ from ship ship0_ where ship0_.isUsed=? and ship0_.name like ? limit ?",
+                ShipQueryProfiler.normalize("select ship0_.id as col_0_0_ from ship ship0_\n where ship0_.isUsed=1 "
+                        + "and ship0_.name like '%it''s%' limit 3"));
+        assertEquals("Списки идентификаторов разной длины дают разные формы",
+                ShipQueryProfiler.normalize("select count(ship0_.id) from ship ship0_ where ship0_.id in (? , ?) and ship0_.speed>=?"),
+                ShipQueryProfiler.normalize("select count(ship0_.id) from ship ship0_ where ship0_.id in (? , ? , ? , ?) and ship0_.speed>=-0.5"));
+    }
+
+    @Test
+    public void onlyQueriesOverThresholdCountAsSlow() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ShipQueryProfiler profiler = new ShipQueryProfiler();
+        ReflectionTestUtils.setField(profiler, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(profiler, "enabled", true);
+        ReflectionTestUtils.setField(profiler, "slowQueryMs", 100L);
+        ReflectionTestUtils.setField(profiler, "maxShapes", 10);
+
+        profiler.profileList("list", () -> query("select * from ship where speed>=0.5", 0));
+        assertEquals("Быстрый запрос не должен считаться медленным", 0.0,
+                meterRegistry.counter("ships.query.slow", "kind", "list").count());
+
+        profiler.profileList("list", () -> query("select * from ship where speed>=0.7", 150));
+        profiler.profileCount(() -> {
+            query("select count(*) from ship", 150);
+            return 40L;
+        });
+        assertEquals("Медленный запрос списка не посчитан", 1.0,
+                meterRegistry.counter("ships.query.slow", "kind", "list").count());
+        assertEquals("Медленный запрос подсчета не посчитан", 1.0,
+                meterRegistry.counter("ships.query.slow", "kind", "count").count());
+
+        List<ShipQueryShape> shapes = profiler.top(ShipQueryShape.Order.MAX, 10);
+        assertEquals("Неверное количество форм запросов", 2, shapes.size());
+        for (ShipQueryShape shape : shapes) {
+            assertEquals("Неверное количество выполнений формы " + shape.getKind(),
+                    "list".equals(shape.getKind()) ? 2L : 1L, shape.getExecutions());
+        }
+    }
+
+    // a statement as Hibernate reports it to the profiler, then the database at work
+    private static List<ShipView> query(String sql, long millis) {
+        new ShipQueryProfiler.SqlListener().inspect(sql);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+    }
+}
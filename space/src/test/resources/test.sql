@@ -1,5 +1,3 @@
-USE test;
-
 DROP TABLE IF EXISTS ship;
 
 CREATE TABLE ship
@@ -13,11 +11,25 @@ CREATE TABLE ship
     speed    DOUBLE      NULL,
     crewSize INT(4)      NULL,
     rating   DOUBLE      NULL,
+    version  BIGINT(20)  NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 )
     ENGINE = InnoDB
     DEFAULT CHARACTER SET = utf8;
 
+DROP TABLE IF EXISTS ship_rerate_checkpoint;
+
+CREATE TABLE ship_rerate_checkpoint
+(
+    job       VARCHAR(32) NOT NULL,
+    lastId    BIGINT(20)  NOT NULL,
+    processed BIGINT(20)  NOT NULL,
+    updated   BIGINT(20)  NOT NULL,
+    PRIMARY KEY (job)
+)
+    ENGINE = InnoDB
+    DEFAULT CHARACTER SET = utf8;
+
 insert into ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating)
 values ('Orion III', 'Mars', 'MERCHANT', '2995-01-01', true, 0.82, 617, 1.31)
      , ('Daedalus', 'Jupiter', 'MERCHANT', '3001-01-01', true, 0.94, 1619, 1.98)